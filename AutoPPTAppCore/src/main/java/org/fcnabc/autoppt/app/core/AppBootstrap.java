@@ -0,0 +1,111 @@
+package org.fcnabc.autoppt.app.core;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import lombok.extern.slf4j.Slf4j;
+
+import com.google.inject.AbstractModule;
+import com.google.inject.Guice;
+import com.google.inject.Injector;
+import com.google.inject.Module;
+import com.google.inject.Stage;
+import com.google.inject.matcher.Matchers;
+
+/**
+ * Creates the injector without constructing any singletons, then warms the heavy ones in parallel on a bounded
+ * executor. Each warm-up gets a readiness future the UI and CLI can wait on, so the app can show local data while
+ * network-bound services are still starting. Singletons that are never warmed are constructed on first use.
+ */
+@Slf4j
+public class AppBootstrap implements AutoCloseable {
+    // Warm-ups mostly wait on disk and network, so the pool is not sized by CPU count
+    private static final int WARMUP_THREADS = 4;
+
+    private final StartupTimeline timeline = new StartupTimeline();
+    private final Map<String, CompletableFuture<?>> readiness = new LinkedHashMap<>();
+    private final ExecutorService executor;
+    private final Injector injector;
+
+    public AppBootstrap(Module... modules) {
+        this.executor = Executors.newFixedThreadPool(WARMUP_THREADS, Thread.ofPlatform().name("startup-", 1).daemon().factory());
+
+        List<Module> allModules = new ArrayList<>(List.of(modules));
+        allModules.add(new AbstractModule() {
+            @Override
+            protected void configure() {
+                bindListener(Matchers.any(), timeline);
+            }
+        });
+        // DEVELOPMENT keeps singletons lazy; PRODUCTION would construct all of them inside createInjector
+        this.injector = timeline.time("Injector", () -> Guice.createInjector(Stage.DEVELOPMENT, allModules));
+    }
+
+    /**
+     * Constructs the singleton of the given type in the background.
+     */
+    public <T> CompletableFuture<T> warm(Class<T> type) {
+        return warm(type.getSimpleName(), () -> injector.getInstance(type));
+    }
+
+    /**
+     * Runs a named startup step in the background and records it on the timeline. Steps that need another step's
+     * result should get it from the injector, which blocks until that singleton is constructed.
+     */
+    public synchronized <T> CompletableFuture<T> warm(String name, Callable<T> step) {
+        if (readiness.containsKey(name)) {
+            throw new IllegalStateException("Startup step already registered: " + name);
+        }
+        CompletableFuture<T> future = CompletableFuture.supplyAsync(() -> timeline.time(name, () -> {
+            try {
+                return step.call();
+            } catch (RuntimeException e) {
+                throw e;
+            } catch (Exception e) {
+                throw new CompletionException(e);
+            }
+        }), executor);
+        future.whenComplete((result, error) -> {
+            if (error != null) log.error("Startup step '{}' failed", name, error);
+        });
+        readiness.put(name, future);
+        return future;
+    }
+
+    public synchronized CompletableFuture<?> ready(String name) {
+        CompletableFuture<?> future = readiness.get(name);
+        if (future == null) {
+            throw new IllegalArgumentException("Unknown startup step: " + name);
+        }
+        return future;
+    }
+
+    /**
+     * Completes once every registered step has finished, successfully or not.
+     */
+    public synchronized CompletableFuture<Void> allReady() {
+        CompletableFuture<?>[] futures = readiness.values().stream()
+                .map(future -> future.exceptionally(error -> null))
+                .toArray(CompletableFuture[]::new);
+        return CompletableFuture.allOf(futures);
+    }
+
+    public Injector getInjector() {
+        return injector;
+    }
+
+    public StartupTimeline getTimeline() {
+        return timeline;
+    }
+
+    @Override
+    public void close() {
+        executor.shutdownNow();
+    }
+}
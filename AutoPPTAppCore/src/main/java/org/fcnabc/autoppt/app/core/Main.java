@@ -1,11 +1,30 @@
 package org.fcnabc.autoppt.app.core;
 
+import lombok.extern.slf4j.Slf4j;
+
+import org.fcnabc.autoppt.google.GoogleModule;
+import org.fcnabc.autoppt.google.GoogleSlidesFactory;
+import org.fcnabc.autoppt.hymns.HymnModule;
+import org.fcnabc.autoppt.hymns.HymnStore;
+import org.fcnabc.autoppt.io.IOModule;
+
+@Slf4j
 public class Main {
-    public String getGreeting() {
-        return "Hello World!";
-    }
+    static final String HYMN_SYNC_STEP = "HymnStore.sync";
 
     public static void main(String[] args) {
-        System.out.println(new Main().getGreeting());
+        try (AppBootstrap bootstrap = new AppBootstrap(new IOModule(), new GoogleModule(), new HymnModule())) {
+            bootstrap.warm(GoogleSlidesFactory.class);
+            bootstrap.warm(HymnStore.class).thenAccept(hymnStore ->
+                    log.info("{} hymns available from the local cache", hymnStore.getAvailableHymns().size()));
+            bootstrap.warm(HYMN_SYNC_STEP, () -> {
+                HymnStore hymnStore = bootstrap.getInjector().getInstance(HymnStore.class);
+                hymnStore.addSyncListener(event -> log.debug("Hymn sync: {}", event));
+                return hymnStore.getSyncFuture().join();
+            });
+
+            bootstrap.allReady().join();
+            log.info(bootstrap.getTimeline().report());
+        }
     }
 }
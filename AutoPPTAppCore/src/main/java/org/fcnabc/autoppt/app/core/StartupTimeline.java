@@ -0,0 +1,77 @@
+package org.fcnabc.autoppt.app.core;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.function.Supplier;
+
+import com.google.inject.Scopes;
+import com.google.inject.spi.ProvisionListener;
+
+/**
+ * Records when each startup step ran and how long it took. As a Guice ProvisionListener it also records the
+ * construction of every singleton; a singleton's time includes the dependencies it had to construct first.
+ */
+public class StartupTimeline implements ProvisionListener {
+    private final long startNanos = System.nanoTime();
+    private final List<Entry> entries = new ArrayList<>();
+
+    public record Entry(String name, String thread, Duration start, Duration duration, boolean failed) {}
+
+    public <T> T time(String name, Supplier<T> step) {
+        long start = System.nanoTime();
+        boolean failed = true;
+        try {
+            T result = step.get();
+            failed = false;
+            return result;
+        } finally {
+            record(name, start, failed);
+        }
+    }
+
+    @Override
+    public <T> void onProvision(ProvisionInvocation<T> provision) {
+        if (!Scopes.isSingleton(provision.getBinding())) {
+            provision.provision();
+            return;
+        }
+        time(describe(provision), provision::provision);
+    }
+
+    public synchronized List<Entry> getEntries() {
+        List<Entry> sorted = new ArrayList<>(entries);
+        sorted.sort(Comparator.comparing(Entry::start));
+        return sorted;
+    }
+
+    public String report() {
+        StringBuilder report = new StringBuilder("Startup timeline (start, duration, step, thread):\n");
+        for (Entry entry : getEntries()) {
+            report.append(String.format("  +%6d ms %6d ms  %s [%s]%s%n",
+                    entry.start().toMillis(),
+                    entry.duration().toMillis(),
+                    entry.name(),
+                    entry.thread(),
+                    entry.failed() ? " FAILED" : ""));
+        }
+        return report.toString();
+    }
+
+    private synchronized void record(String name, long start, boolean failed) {
+        long end = System.nanoTime();
+        entries.add(new Entry(
+                name,
+                Thread.currentThread().getName(),
+                Duration.ofNanos(start - startNanos),
+                Duration.ofNanos(end - start),
+                failed));
+    }
+
+    private static String describe(ProvisionInvocation<?> provision) {
+        var key = provision.getBinding().getKey();
+        String type = key.getTypeLiteral().getRawType().getSimpleName();
+        return key.getAnnotation() == null ? type : type + " " + key.getAnnotation();
+    }
+}
@@ -0,0 +1,69 @@
+package org.fcnabc.autoppt.app.core;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Test;
+
+import com.google.inject.AbstractModule;
+import com.google.inject.Singleton;
+
+class AppBootstrapTest {
+    private static final AtomicInteger CONSTRUCTED = new AtomicInteger();
+
+    @Singleton
+    static class SlowService {
+        SlowService() throws InterruptedException {
+            CONSTRUCTED.incrementAndGet();
+            Thread.sleep(50);
+        }
+    }
+
+    @Test
+    void testSingletonsAreLazyUntilWarmed() throws Exception {
+        CONSTRUCTED.set(0);
+        try (AppBootstrap bootstrap = new AppBootstrap(new AbstractModule() {
+            @Override
+            protected void configure() {
+                bind(SlowService.class);
+            }
+        })) {
+            assertEquals(0, CONSTRUCTED.get());
+
+            SlowService service = bootstrap.warm(SlowService.class).get(5, TimeUnit.SECONDS);
+
+            assertSame(service, bootstrap.getInjector().getInstance(SlowService.class));
+            assertEquals(1, CONSTRUCTED.get());
+            List<String> steps = bootstrap.getTimeline().getEntries().stream().map(StartupTimeline.Entry::name).toList();
+            assertTrue(steps.containsAll(List.of("Injector", "SlowService")), steps.toString());
+            assertTrue(bootstrap.getTimeline().report().contains("SlowService"));
+        }
+    }
+
+    @Test
+    void testStepsRunInParallelAndFailuresDoNotBlockReadiness() throws Exception {
+        CountDownLatch bothStarted = new CountDownLatch(2);
+        try (AppBootstrap bootstrap = new AppBootstrap()) {
+            for (String name : List.of("first", "second")) {
+                bootstrap.warm(name, () -> {
+                    bothStarted.countDown();
+                    return bothStarted.await(5, TimeUnit.SECONDS);
+                });
+            }
+            CompletableFuture<Object> failing = bootstrap.warm("failing", () -> {
+                throw new IllegalStateException("offline");
+            });
+
+            bootstrap.allReady().get(5, TimeUnit.SECONDS);
+
+            assertEquals(true, bootstrap.ready("first").get());
+            assertEquals(true, bootstrap.ready("second").get());
+            assertTrue(failing.isCompletedExceptionally());
+        }
+    }
+}
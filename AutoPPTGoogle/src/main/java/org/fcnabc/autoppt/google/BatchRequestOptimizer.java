@@ -0,0 +1,262 @@
+package org.fcnabc.autoppt.google;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import com.google.api.client.json.GenericJson;
+import com.google.api.services.slides.v1.model.DuplicateObjectRequest;
+import com.google.api.services.slides.v1.model.ParagraphStyle;
+import com.google.api.services.slides.v1.model.Range;
+import com.google.api.services.slides.v1.model.Request;
+import com.google.api.services.slides.v1.model.TableCellLocation;
+import com.google.api.services.slides.v1.model.TextStyle;
+import com.google.api.services.slides.v1.model.UpdateParagraphStyleRequest;
+import com.google.api.services.slides.v1.model.UpdateTextStyleRequest;
+
+/**
+ * Coalesces a pending Slides request queue without changing its result:
+ * 1. Edits to an object (or to an element of a slide) that is deleted later in the same batch are dropped.
+ * 2. Text writes that are fully erased by a later DeleteText(ALL) on the same target are dropped.
+ * 3. A style update covered by a later one on the same target (same or wider range, superset field mask) is dropped,
+ *    and style updates on the same target and range are merged into one.
+ * The passes are conservative: a DuplicateObjectRequest copies the current state of its source, and any request the
+ * optimizer does not recognise may depend on text or styles, so both act as barriers that nothing is coalesced across.
+ */
+class BatchRequestOptimizer {
+    private final Map<String, String> pageIds;
+
+    private record Target(String objectId, Integer rowIndex, Integer columnIndex) {
+        static Target of(String objectId, TableCellLocation cellLocation) {
+            return cellLocation == null
+                    ? new Target(objectId, null, null)
+                    : new Target(objectId, cellLocation.getRowIndex(), cellLocation.getColumnIndex());
+        }
+    }
+
+    /**
+     * @param pageIds mapping from every known object ID to the ID of the slide that contains it (slides map to themselves)
+     */
+    BatchRequestOptimizer(Map<String, String> pageIds) {
+        this.pageIds = new HashMap<>(pageIds);
+    }
+
+    List<Request> optimize(List<Request> requests) {
+        registerDuplicatedIds(requests);
+
+        boolean[] dropped = new boolean[requests.size()];
+        dropEditsToDeletedObjects(requests, dropped);
+        dropErasedTextWrites(requests, dropped);
+        coalesceStyleUpdates(requests, dropped);
+
+        List<Request> optimized = new ArrayList<>(requests.size());
+        for (int i = 0; i < requests.size(); i++) {
+            if (!dropped[i]) optimized.add(requests.get(i));
+        }
+        return optimized;
+    }
+
+    // ------------------------------------------------------------------------
+
+    /**
+     * Records which slide the objects created by slide duplicates in this batch belong to.
+     */
+    private void registerDuplicatedIds(List<Request> requests) {
+        for (Request request : requests) {
+            DuplicateObjectRequest duplicate = request.getDuplicateObject();
+            if (duplicate == null || duplicate.getObjectIds() == null) continue;
+
+            String newPageId = duplicate.getObjectIds().get(duplicate.getObjectId());
+            String sourcePageId = pageIds.get(duplicate.getObjectId());
+            if (newPageId == null || !duplicate.getObjectId().equals(sourcePageId)) continue;
+
+            duplicate.getObjectIds().values().forEach(newId -> pageIds.put(newId, newPageId));
+        }
+    }
+
+    private void dropEditsToDeletedObjects(List<Request> requests, boolean[] dropped) {
+        Set<String> deletedLater = new HashSet<>();
+        for (int i = requests.size() - 1; i >= 0; i--) {
+            Request request = requests.get(i);
+            if (request.getDeleteObject() != null) {
+                deletedLater.add(request.getDeleteObject().getObjectId());
+            } else if (request.getDuplicateObject() != null) {
+                // Edits made before the duplicate are carried into the copy
+                String sourceId = request.getDuplicateObject().getObjectId();
+                deletedLater.removeIf(id -> id.equals(sourceId) || sourceId.equals(pageIds.get(id)));
+            } else {
+                Target target = targetOf(request);
+                if (target != null && (deletedLater.contains(target.objectId())
+                        || deletedLater.contains(pageIds.get(target.objectId())))) {
+                    dropped[i] = true;
+                }
+            }
+        }
+    }
+
+    private void dropErasedTextWrites(List<Request> requests, boolean[] dropped) {
+        Set<Target> erasedLater = new HashSet<>();
+        for (int i = requests.size() - 1; i >= 0; i--) {
+            if (dropped[i]) continue;
+            Request request = requests.get(i);
+            Target target = targetOf(request);
+
+            if (target == null) {
+                if (request.getDeleteObject() == null) erasedLater.clear();
+            } else if (request.getDeleteText() != null || request.getInsertText() != null) {
+                if (erasedLater.contains(target)) {
+                    dropped[i] = true;
+                } else if (request.getDeleteText() != null && isAll(request.getDeleteText().getTextRange())) {
+                    erasedLater.add(target);
+                }
+            } else {
+                // A style update between two writes applies to the earlier text, so that text must stay
+                erasedLater.remove(target);
+            }
+        }
+    }
+
+    private void coalesceStyleUpdates(List<Request> requests, boolean[] dropped) {
+        Map<Target, List<Request>> laterTextStyles = new HashMap<>();
+        Map<Target, List<Request>> laterParagraphStyles = new HashMap<>();
+        for (int i = requests.size() - 1; i >= 0; i--) {
+            if (dropped[i]) continue;
+            Request request = requests.get(i);
+            Target target = targetOf(request);
+
+            if (target == null) {
+                if (request.getDeleteObject() == null) {
+                    laterTextStyles.clear();
+                    laterParagraphStyles.clear();
+                }
+            } else if (request.getUpdateTextStyle() != null) {
+                dropped[i] = coalesceInto(request, laterTextStyles.computeIfAbsent(target, t -> new ArrayList<>()));
+            } else if (request.getUpdateParagraphStyle() != null) {
+                dropped[i] = coalesceInto(request, laterParagraphStyles.computeIfAbsent(target, t -> new ArrayList<>()));
+            } else {
+                laterTextStyles.remove(target);
+                laterParagraphStyles.remove(target);
+            }
+        }
+    }
+
+    /**
+     * Tries to fold an earlier style update into the later updates on the same target.
+     * It is dropped if any later update covers its range with a superset field mask, or merged into the nearest later
+     * update if that one has the same range. Otherwise it is recorded as a later update itself.
+     */
+    private static boolean coalesceInto(Request earlier, List<Request> laterUpdates) {
+        StyleUpdate earlierUpdate = StyleUpdate.of(earlier);
+        if (earlierUpdate.fields() != null && !laterUpdates.isEmpty()) {
+            for (Request later : laterUpdates) {
+                StyleUpdate laterUpdate = StyleUpdate.of(later);
+                if (laterUpdate.fields() != null
+                        && covers(laterUpdate.range(), earlierUpdate.range())
+                        && laterUpdate.fields().containsAll(earlierUpdate.fields())) {
+                    return true;
+                }
+            }
+
+            // Merging moves the earlier update past everything in between, so only the nearest one qualifies
+            Request nearest = laterUpdates.get(laterUpdates.size() - 1);
+            StyleUpdate nearestUpdate = StyleUpdate.of(nearest);
+            if (nearestUpdate.fields() != null && sameRange(nearestUpdate.range(), earlierUpdate.range())) {
+                merge(earlierUpdate, nearestUpdate, nearest);
+                return true;
+            }
+        }
+        laterUpdates.add(earlier);
+        return false;
+    }
+
+    /**
+     * Merges the earlier update into the later one: fields only the earlier one sets are copied over, fields in the later
+     * mask keep the later value (including being reset when the later style leaves them unset).
+     */
+    private static void merge(StyleUpdate earlier, StyleUpdate later, Request laterRequest) {
+        GenericJson merged = earlier.style() == null ? null : earlier.style().clone();
+        Set<String> fields = new LinkedHashSet<>(earlier.fields());
+        fields.addAll(later.fields());
+
+        for (String field : later.fields()) {
+            Object value = later.style() == null ? null : later.style().get(field);
+            if (merged != null) merged.set(field, value);
+        }
+        String mask = String.join(",", fields);
+
+        if (laterRequest.getUpdateTextStyle() != null) {
+            UpdateTextStyleRequest update = laterRequest.getUpdateTextStyle();
+            update.setFields(mask);
+            if (merged != null) update.setStyle((TextStyle) merged);
+        } else {
+            UpdateParagraphStyleRequest update = laterRequest.getUpdateParagraphStyle();
+            update.setFields(mask);
+            if (merged != null) update.setStyle((ParagraphStyle) merged);
+        }
+    }
+
+    private record StyleUpdate(Range range, Set<String> fields, GenericJson style) {
+        static StyleUpdate of(Request request) {
+            if (request.getUpdateTextStyle() != null) {
+                UpdateTextStyleRequest update = request.getUpdateTextStyle();
+                return new StyleUpdate(update.getTextRange(), parseFields(update.getFields()), update.getStyle());
+            }
+            UpdateParagraphStyleRequest update = request.getUpdateParagraphStyle();
+            return new StyleUpdate(update.getTextRange(), parseFields(update.getFields()), update.getStyle());
+        }
+
+        /**
+         * Returns the top-level field names of a mask, or null if the mask cannot be reasoned about (wildcards or nested paths).
+         */
+        private static Set<String> parseFields(String mask) {
+            if (mask == null || mask.contains("*") || mask.contains(".")) return null;
+            return Arrays.stream(mask.split(","))
+                    .map(String::trim)
+                    .filter(field -> !field.isEmpty())
+                    .collect(Collectors.toCollection(LinkedHashSet::new));
+        }
+    }
+
+    // ------------------------------------------------------------------------
+
+    private static Target targetOf(Request request) {
+        if (request.getDeleteText() != null) {
+            return Target.of(request.getDeleteText().getObjectId(), request.getDeleteText().getCellLocation());
+        } else if (request.getInsertText() != null) {
+            return Target.of(request.getInsertText().getObjectId(), request.getInsertText().getCellLocation());
+        } else if (request.getUpdateTextStyle() != null) {
+            return Target.of(request.getUpdateTextStyle().getObjectId(), request.getUpdateTextStyle().getCellLocation());
+        } else if (request.getUpdateParagraphStyle() != null) {
+            return Target.of(request.getUpdateParagraphStyle().getObjectId(), request.getUpdateParagraphStyle().getCellLocation());
+        }
+        return null;
+    }
+
+    private static boolean isAll(Range range) {
+        return range != null && "ALL".equals(range.getType());
+    }
+
+    private static boolean sameRange(Range a, Range b) {
+        return a != null && b != null && a.equals(b);
+    }
+
+    /**
+     * Returns true if range a includes every index of range b.
+     */
+    private static boolean covers(Range a, Range b) {
+        if (a == null || b == null) return false;
+        if (isAll(a)) return true;
+        if (isAll(b) || a.getStartIndex() == null || b.getStartIndex() == null) return false;
+        if (a.getStartIndex() > b.getStartIndex()) return false;
+
+        if ("FROM_START_INDEX".equals(a.getType())) return true;
+        if (!"FIXED_RANGE".equals(a.getType()) || !"FIXED_RANGE".equals(b.getType())) return false;
+        return a.getEndIndex() != null && b.getEndIndex() != null && a.getEndIndex() >= b.getEndIndex();
+    }
+}
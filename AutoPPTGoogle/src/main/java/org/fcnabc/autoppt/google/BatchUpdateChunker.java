@@ -0,0 +1,97 @@
+package org.fcnabc.autoppt.google;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import lombok.extern.slf4j.Slf4j;
+
+import com.google.api.client.json.JsonFactory;
+import com.google.api.services.slides.v1.model.DeleteTextRequest;
+import com.google.api.services.slides.v1.model.InsertTextRequest;
+import com.google.api.services.slides.v1.model.Request;
+
+/**
+ * Splits a list of pending Slides requests into bounded chunks, limited both by request count and by serialized JSON size.
+ * Chunks preserve the original request order, so requests that depend on earlier ones (e.g. edits to the IDs created by a
+ * DuplicateObjectRequest) still run after them as long as the chunks are submitted sequentially.
+ * A DeleteText immediately followed by an InsertText on the same target (as emitted by setText) is never split across chunks,
+ * so a failed chunk cannot leave a text box emptied.
+ */
+@Slf4j
+class BatchUpdateChunker {
+    private final List<Request> requests;
+    private final JsonFactory jsonFactory;
+    private final int maxRequests;
+    private final long maxPayloadBytes;
+    private int position = 0;
+
+    record Chunk(List<Request> requests, long payloadBytes) {}
+
+    BatchUpdateChunker(List<Request> requests, JsonFactory jsonFactory, int maxRequests, long maxPayloadBytes) {
+        if (maxRequests < 2) {
+            throw new IllegalArgumentException("A chunk must allow at least 2 requests: " + maxRequests);
+        }
+        if (maxPayloadBytes <= 0) {
+            throw new IllegalArgumentException("Chunk payload limit must be positive: " + maxPayloadBytes);
+        }
+        this.requests = requests;
+        this.jsonFactory = jsonFactory;
+        this.maxRequests = maxRequests;
+        this.maxPayloadBytes = maxPayloadBytes;
+    }
+
+    /**
+     * Returns the next chunk, or null once every request has been handed out.
+     * A single unit larger than the payload limit is emitted on its own rather than dropped.
+     */
+    Chunk next() {
+        if (position >= requests.size()) return null;
+
+        List<Request> chunk = new ArrayList<>();
+        long payloadBytes = 0;
+        while (position < requests.size()) {
+            int unitSize = unitSizeAt(position);
+            long unitBytes = 0;
+            for (int i = position; i < position + unitSize; i++) {
+                unitBytes += serializedSize(requests.get(i));
+            }
+
+            boolean fits = chunk.size() + unitSize <= maxRequests && payloadBytes + unitBytes <= maxPayloadBytes;
+            if (!fits && !chunk.isEmpty()) break;
+            if (!fits) {
+                log.warn("Request unit at index {} ({} bytes) exceeds the chunk limits; sending it on its own.", position, unitBytes);
+            }
+
+            chunk.addAll(requests.subList(position, position + unitSize));
+            payloadBytes += unitBytes;
+            position += unitSize;
+        }
+        return new Chunk(chunk, payloadBytes);
+    }
+
+    // --------------------------------------------------------------------
+
+    private int unitSizeAt(int index) {
+        if (index + 1 >= requests.size()) return 1;
+
+        DeleteTextRequest delete = requests.get(index).getDeleteText();
+        InsertTextRequest insert = requests.get(index + 1).getInsertText();
+        if (delete != null && insert != null
+                && Objects.equals(delete.getObjectId(), insert.getObjectId())
+                && Objects.equals(delete.getCellLocation(), insert.getCellLocation())) {
+            return 2;
+        }
+        return 1;
+    }
+
+    private long serializedSize(Request request) {
+        try {
+            return jsonFactory.toString(request).getBytes(StandardCharsets.UTF_8).length;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to serialize Slides request", e);
+        }
+    }
+}
@@ -0,0 +1,221 @@
+package org.fcnabc.autoppt.google;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.time.Duration;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.IntSupplier;
+import java.util.function.LongSupplier;
+import lombok.extern.slf4j.Slf4j;
+
+import com.google.api.client.googleapis.json.GoogleJsonError;
+import com.google.api.client.googleapis.json.GoogleJsonResponseException;
+import com.google.api.client.http.HttpResponseException;
+import com.google.api.client.util.Sleeper;
+import com.google.inject.Inject;
+import com.google.inject.Singleton;
+
+import org.fcnabc.autoppt.google.models.ApiCallMetrics;
+import org.fcnabc.autoppt.google.models.GoogleApiQuota;
+
+/**
+ * Runs every Google API call made by this module through a token bucket for its quota and retries calls rejected
+ * with 429, a rate limit 403 or a 5xx, using exponential backoff with jitter or the server's Retry-After delay.
+ * Shared by all GoogleSlides sessions and GoogleDrive, so back to back runs are bounded by quota instead of failing.
+ * Rate limited calls were never applied and are always retried. A 5xx is only retried for idempotent quotas: a Slides
+ * batchUpdate that failed with a 5xx may still have been applied, so it is never retried. Calls that create something,
+ * such as a Drive copy or upload, go through executeNonIdempotent, since a repeat would create it twice.
+ */
+@Slf4j
+@Singleton
+public class GoogleApiRateLimiter {
+    private static final int MAX_ATTEMPTS = 6;
+    private static final long INITIAL_BACKOFF_MILLIS = 1000;
+    private static final long MAX_BACKOFF_MILLIS = 32_000;
+    private static final long MAX_RETRY_AFTER_MILLIS = 120_000;
+    private static final List<String> RATE_LIMIT_REASONS = List.of("rateLimitExceeded", "userRateLimitExceeded");
+
+    @FunctionalInterface
+    public interface ApiCall<T> {
+        T execute() throws IOException;
+    }
+
+    private static class Counters {
+        final LongAdder calls = new LongAdder();
+        final LongAdder retries = new LongAdder();
+        final LongAdder throttledNanos = new LongAdder();
+        final LongAdder backoffMillis = new LongAdder();
+    }
+
+    private final Map<GoogleApiQuota, TokenBucket> buckets = new EnumMap<>(GoogleApiQuota.class);
+    private final Map<GoogleApiQuota, Counters> counters = new EnumMap<>(GoogleApiQuota.class);
+    private final Sleeper sleeper;
+
+    @Inject
+    public GoogleApiRateLimiter() {
+        this(System::nanoTime, Sleeper.DEFAULT);
+    }
+
+    GoogleApiRateLimiter(LongSupplier nanoClock, Sleeper sleeper) {
+        this.sleeper = sleeper;
+        for (GoogleApiQuota quota : GoogleApiQuota.values()) {
+            buckets.put(quota, new TokenBucket(quota.getRequestsPerMinute(), nanoClock));
+            counters.put(quota, new Counters());
+        }
+    }
+
+    /**
+     * Waits for a token of the given quota, then runs the call, retrying it on retryable errors.
+     * The last error is rethrown once MAX_ATTEMPTS is reached; other errors are rethrown immediately.
+     */
+    public <T> T execute(GoogleApiQuota quota, ApiCall<T> call) throws IOException {
+        return execute(quota, 1, call);
+    }
+
+    /**
+     * Like {@link #execute(GoogleApiQuota, ApiCall)} for a call that counts as several requests against the quota,
+     * such as a batch request.
+     */
+    public <T> T execute(GoogleApiQuota quota, int permits, ApiCall<T> call) throws IOException {
+        return execute(quota, () -> permits, MAX_ATTEMPTS, quota.isIdempotent(), call);
+    }
+
+    /**
+     * Like {@link #execute(GoogleApiQuota, int, ApiCall)} for a batch whose retries only resend the items that failed;
+     * permits is read again before every attempt.
+     */
+    public <T> T execute(GoogleApiQuota quota, IntSupplier permits, ApiCall<T> call) throws IOException {
+        return execute(quota, permits, MAX_ATTEMPTS, quota.isIdempotent(), call);
+    }
+
+    /**
+     * Like {@link #execute(GoogleApiQuota, ApiCall)} for a call that is not idempotent even though its quota is, such
+     * as a Drive files.create or files.copy. Only rate limit responses are retried; a 5xx may come back after the call
+     * was applied, so it is rethrown.
+     */
+    public <T> T executeNonIdempotent(GoogleApiQuota quota, ApiCall<T> call) throws IOException {
+        return execute(quota, () -> 1, MAX_ATTEMPTS, false, call);
+    }
+
+    /**
+     * Waits for a token of the given quota and runs the call without retrying it, for calls that cannot be repeated,
+     * such as an upload that consumes an InputStream. Rate limit responses still slow the bucket down.
+     */
+    public <T> T executeOnce(GoogleApiQuota quota, ApiCall<T> call) throws IOException {
+        return execute(quota, () -> 1, 1, false, call);
+    }
+
+    private <T> T execute(GoogleApiQuota quota, IntSupplier permits, int maxAttempts, boolean retryServerErrors, ApiCall<T> call)
+            throws IOException {
+        TokenBucket bucket = buckets.get(quota);
+        Counters counter = counters.get(quota);
+
+        for (int attempt = 1; ; attempt++) {
+            long waitNanos = bucket.reserve(permits.getAsInt());
+            if (waitNanos > 0) {
+                sleep(TimeUnit.NANOSECONDS.toMillis(waitNanos));
+                counter.throttledNanos.add(waitNanos);
+            }
+            counter.calls.increment();
+
+            try {
+                T result = call.execute();
+                bucket.speedUp();
+                return result;
+            } catch (HttpResponseException e) {
+                if (isRateLimited(e)) bucket.slowDown();
+                if (!isRetryable(e, retryServerErrors) || attempt >= maxAttempts) throw e;
+
+                long delayMillis = retryDelayMillis(e, attempt);
+                log.warn("{} call failed with HTTP {} (attempt {}/{}); retrying in {} ms",
+                        quota, e.getStatusCode(), attempt, maxAttempts, delayMillis);
+                counter.retries.increment();
+                counter.backoffMillis.add(delayMillis);
+                sleep(delayMillis);
+            }
+        }
+    }
+
+    public ApiCallMetrics getMetrics(GoogleApiQuota quota) {
+        Counters counter = counters.get(quota);
+        return new ApiCallMetrics(
+                counter.calls.sum(),
+                counter.retries.sum(),
+                TimeUnit.NANOSECONDS.toMillis(counter.throttledNanos.sum()),
+                counter.backoffMillis.sum());
+    }
+
+    public Map<GoogleApiQuota, ApiCallMetrics> getMetrics() {
+        Map<GoogleApiQuota, ApiCallMetrics> metrics = new EnumMap<>(GoogleApiQuota.class);
+        for (GoogleApiQuota quota : GoogleApiQuota.values()) {
+            metrics.put(quota, getMetrics(quota));
+        }
+        return metrics;
+    }
+
+    // ------------------------------------------------------------------------
+
+    private static boolean isRetryable(HttpResponseException e, boolean retryServerErrors) {
+        return (retryServerErrors && e.getStatusCode() >= 500) || isRateLimited(e);
+    }
+
+    /**
+     * Slides reports exhausted quota as 429; Drive also uses 403 with a rate limit reason.
+     */
+    private static boolean isRateLimited(HttpResponseException e) {
+        return isRateLimited(e.getStatusCode(), e instanceof GoogleJsonResponseException jsonException ? jsonException.getDetails() : null);
+    }
+
+    static boolean isRateLimited(int statusCode, GoogleJsonError details) {
+        if (statusCode == 429) return true;
+        if (statusCode != 403) return false;
+        return details != null && details.getErrors() != null && details.getErrors().stream()
+                .anyMatch(error -> RATE_LIMIT_REASONS.contains(error.getReason()));
+    }
+
+    private static long retryDelayMillis(HttpResponseException e, int attempt) {
+        Long retryAfterMillis = parseRetryAfter(e.getHeaders() == null ? null : e.getHeaders().getFirstHeaderStringValue("Retry-After"));
+        if (retryAfterMillis != null) {
+            return Math.min(retryAfterMillis, MAX_RETRY_AFTER_MILLIS);
+        }
+
+        long backoff = Math.min(MAX_BACKOFF_MILLIS, INITIAL_BACKOFF_MILLIS << (attempt - 1));
+        // Equal jitter: at least half the backoff so retries still spread out, at most the full backoff
+        return backoff / 2 + ThreadLocalRandom.current().nextLong(backoff / 2 + 1);
+    }
+
+    /**
+     * Parses a Retry-After header given either as delay seconds or as an HTTP date. Returns null if absent or malformed.
+     */
+    static Long parseRetryAfter(String retryAfter) {
+        if (retryAfter == null || retryAfter.isBlank()) return null;
+        try {
+            return TimeUnit.SECONDS.toMillis(Long.parseLong(retryAfter.trim()));
+        } catch (NumberFormatException e) {
+            try {
+                ZonedDateTime retryAt = ZonedDateTime.parse(retryAfter.trim(), DateTimeFormatter.RFC_1123_DATE_TIME);
+                return Math.max(0, Duration.between(ZonedDateTime.now(retryAt.getZone()), retryAt).toMillis());
+            } catch (DateTimeParseException ignored) {
+                return null;
+            }
+        }
+    }
+
+    private void sleep(long millis) throws IOException {
+        if (millis <= 0) return;
+        try {
+            sleeper.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting to call the Google API");
+        }
+    }
+}
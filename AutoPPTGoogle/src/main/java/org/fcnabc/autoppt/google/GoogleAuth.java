@@ -7,6 +7,7 @@ import java.io.InputStreamReader;
 import java.nio.file.Path;
 import java.util.Collections;
 import java.util.List;
+import java.util.Optional;
 
 import com.google.api.client.auth.oauth2.Credential;
 import com.google.api.client.extensions.java6.auth.oauth2.AuthorizationCodeInstalledApp;
@@ -33,10 +34,12 @@ import org.fcnabc.autoppt.io.model.AppConfig;
 public class GoogleAuth {
     private static final JsonFactory JSON_FACTORY = GsonFactory.getDefaultInstance();
     private static final List<String> SCOPES = Collections.singletonList(DriveScopes.DRIVE);
+    private static final String USER_ID = "user";
     
     private final NetHttpTransport httpTransport;
     private final String googleCredentials;
     private final Path googleTokenDirectory;
+    private GoogleAuthorizationCodeFlow flow;
 
     @Inject
     public GoogleAuth(
@@ -50,25 +53,57 @@ public class GoogleAuth {
     }
 
     /**
-     * Creates an authorized Credential object.
+     * Creates an authorized Credential object, running the interactive flow if no usable token is stored.
      */
     public Credential getCredentials() throws IOException {
+        Optional<Credential> stored = loadStoredCredential();
+        return stored.isPresent() ? stored.get() : authorize();
+    }
+
+    /**
+     * Loads the stored credential without any network or browser interaction. Empty unless it has a refresh token
+     * or an access token that has not expired yet.
+     */
+    public Optional<Credential> loadStoredCredential() throws IOException {
+        Credential credential = getFlow().loadCredential(USER_ID);
+        if (credential == null) return Optional.empty();
+
+        boolean accessTokenValid = credential.getAccessToken() != null
+                && (credential.getExpiresInSeconds() == null || credential.getExpiresInSeconds() > 0);
+        return credential.getRefreshToken() != null || accessTokenValid ? Optional.of(credential) : Optional.empty();
+    }
+
+    /**
+     * Runs the interactive authorization flow and stores the resulting tokens.
+     */
+    public Credential authorize() throws IOException {
+        /*
+        LocalServerReceiver will automatically open the browser, listen for the 
+        redirect on a local port, and capture the token.
+        */
+        LocalServerReceiver receiver = new LocalServerReceiver.Builder().setPort(8888).build();
+        return new AuthorizationCodeInstalledApp(getFlow(), receiver).authorize(USER_ID);
+    }
+
+    /**
+     * Deletes the stored tokens, so the next start runs the interactive flow.
+     */
+    public void deleteStoredCredential() throws IOException {
+        getFlow().getCredentialDataStore().delete(USER_ID);
+    }
+
+    private synchronized GoogleAuthorizationCodeFlow getFlow() throws IOException {
+        if (flow != null) return flow;
+
         // Load client secrets.
         InputStream in = new ByteArrayInputStream(googleCredentials.getBytes());
         GoogleClientSecrets clientSecrets = GoogleClientSecrets.load(JSON_FACTORY, new InputStreamReader(in));
 
-        // Build flow and trigger user authorization request.
-        GoogleAuthorizationCodeFlow flow = new GoogleAuthorizationCodeFlow.Builder(
+        flow = new GoogleAuthorizationCodeFlow.Builder(
                 httpTransport, JSON_FACTORY, clientSecrets, SCOPES)
                 .setDataStoreFactory(new FileDataStoreFactory(googleTokenDirectory.toFile()))
                 .setAccessType("offline")
                 .build();
-        
-        /*
-        LocalServerReceiver will automatically open the browser, listen for the 
-        redirect on a local port, and capture the token.
-        */
-        LocalServerReceiver receiver = new LocalServerReceiver.Builder().setPort(8888).build();
-        return new AuthorizationCodeInstalledApp(flow, receiver).authorize("user");
+        return flow;
     }
 }
@@ -0,0 +1,101 @@
+package org.fcnabc.autoppt.google;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.Optional;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import lombok.extern.slf4j.Slf4j;
+
+import com.google.api.client.auth.oauth2.Credential;
+import com.google.api.client.auth.oauth2.TokenResponseException;
+import com.google.inject.Inject;
+import com.google.inject.Singleton;
+
+/**
+ * Provides the OAuth credential and keeps its access token fresh.
+ * Stored tokens are loaded from disk without any network call; the interactive browser flow only runs when there is
+ * no stored refresh token. The access token is then refreshed on a background thread REFRESH_AHEAD before it expires,
+ * so API calls do not pay for the refresh. Credential still refreshes on the request path as a fallback.
+ */
+@Slf4j
+@Singleton
+public class GoogleCredentialManager {
+    static final Duration REFRESH_AHEAD = Duration.ofMinutes(5);
+    static final Duration RETRY_DELAY = Duration.ofMinutes(1);
+
+    private final GoogleAuth googleAuth;
+    private final ScheduledExecutorService scheduler;
+    private Credential credential;
+
+    @Inject
+    public GoogleCredentialManager(GoogleAuth googleAuth) {
+        this(googleAuth, Executors.newSingleThreadScheduledExecutor(
+                Thread.ofPlatform().name("google-token-refresh").daemon().factory()));
+    }
+
+    GoogleCredentialManager(GoogleAuth googleAuth, ScheduledExecutorService scheduler) {
+        this.googleAuth = googleAuth;
+        this.scheduler = scheduler;
+    }
+
+    public synchronized Credential getCredential() throws IOException {
+        if (credential != null) return credential;
+
+        Optional<Credential> stored = googleAuth.loadStoredCredential();
+        if (stored.isPresent()) {
+            log.info("Loaded stored Google credential");
+            credential = stored.get();
+        } else {
+            log.info("No stored Google refresh token; starting interactive authorization");
+            credential = googleAuth.authorize();
+        }
+        scheduleRefresh();
+        return credential;
+    }
+
+    public void shutdown() {
+        scheduler.shutdownNow();
+    }
+
+    /**
+     * Schedules the next refresh REFRESH_AHEAD before the access token expires, or right away if it already has
+     * or its expiry is unknown.
+     */
+    private void scheduleRefresh() {
+        if (credential.getRefreshToken() == null) {
+            log.warn("Google credential has no refresh token; it will not be refreshed in the background");
+            return;
+        }
+        Long expiresInSeconds = credential.getExpiresInSeconds();
+        long delayMillis = expiresInSeconds == null || credential.getAccessToken() == null
+                ? 0
+                : Math.max(0, TimeUnit.SECONDS.toMillis(expiresInSeconds) - REFRESH_AHEAD.toMillis());
+        log.debug("Refreshing Google access token in {} ms", delayMillis);
+        scheduler.schedule(this::refresh, delayMillis, TimeUnit.MILLISECONDS);
+    }
+
+    private void refresh() {
+        try {
+            if (credential.refreshToken()) {
+                log.info("Refreshed Google access token ahead of expiry");
+                scheduleRefresh();
+                return;
+            }
+            log.warn("Google access token refresh failed; retrying in {}", RETRY_DELAY);
+        } catch (TokenResponseException e) {
+            // Credential only throws for 4xx responses, which mean the refresh token was revoked or expired
+            log.error("Google refresh token was rejected; authorization will be requested on the next start", e);
+            try {
+                googleAuth.deleteStoredCredential();
+            } catch (IOException deleteError) {
+                log.warn("Failed to delete the stored Google credential", deleteError);
+            }
+            return;
+        } catch (IOException e) {
+            log.warn("Google access token refresh failed; retrying in {}", RETRY_DELAY, e);
+        }
+        scheduler.schedule(this::refresh, RETRY_DELAY.toMillis(), TimeUnit.MILLISECONDS);
+    }
+}
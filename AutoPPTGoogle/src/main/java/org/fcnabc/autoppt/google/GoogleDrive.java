@@ -1,87 +1,297 @@
 package org.fcnabc.autoppt.google;
 
+import java.io.ByteArrayInputStream;
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
 import java.nio.file.StandardOpenOption;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
 import lombok.extern.slf4j.Slf4j;
 
-import com.google.api.client.auth.oauth2.Credential;
+import com.google.api.client.googleapis.batch.BatchRequest;
+import com.google.api.client.googleapis.batch.json.JsonBatchCallback;
+import com.google.api.client.googleapis.json.GoogleJsonError;
+import com.google.api.client.googleapis.media.MediaHttpUploader;
+import com.google.api.client.http.AbstractInputStreamContent;
+import com.google.api.client.http.ByteArrayContent;
 import com.google.api.client.http.FileContent;
+import com.google.api.client.http.HttpHeaders;
+import com.google.api.client.http.HttpResponseException;
+import com.google.api.client.http.InputStreamContent;
 import com.google.api.client.util.DateTime;
 import com.google.api.services.drive.Drive;
 import com.google.api.services.drive.Drive.Files.Copy;
+import com.google.api.services.drive.DriveRequest;
+import com.google.api.services.drive.model.Change;
+import com.google.api.services.drive.model.ChangeList;
 import com.google.api.services.drive.model.File;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheStats;
 import com.google.inject.Inject;
 import com.google.inject.Singleton;
-import com.google.inject.name.Named;
 
+import org.fcnabc.autoppt.google.models.DriveBatchResult;
+import org.fcnabc.autoppt.google.models.DriveChangeSet;
+import org.fcnabc.autoppt.google.models.DriveFileChange;
+import org.fcnabc.autoppt.google.models.DriveFileMetadata;
 import org.fcnabc.autoppt.google.models.DriveMimeType;
+import org.fcnabc.autoppt.google.models.DriveUploadConfig;
+import org.fcnabc.autoppt.google.models.GoogleApiQuota;
+import org.fcnabc.autoppt.google.models.MetadataCacheStats;
 
 /**
  * A wrapper around the Google Drive API that provides methods for 
  * file operations such as duplication, deletion, uploading, and downloading.
+ * All calls go through the shared GoogleApiRateLimiter.
  */
 @Slf4j
 @Singleton
 public class GoogleDrive {
-    private final Credential credential;
-    private Drive service;
+    // Largest array the JVM can reliably allocate
+    private static final int UNLIMITED_DOWNLOAD_SIZE = Integer.MAX_VALUE - 8;
+    // https://developers.google.com/workspace/drive/api/guides/performance#batch-requests
+    private static final int MAX_BATCH_SIZE = 100;
+    private static final int NOT_FOUND = 404;
+    private static final int MAX_CHANGES_PAGE_SIZE = 1000;
+    private static final String METADATA_CONTEXT = "id,name,mimeType,modifiedTime,size,md5Checksum,sha256Checksum";
+    private static final int METADATA_CACHE_SIZE = 1000;
+    private static final Duration METADATA_CACHE_TTL = Duration.ofMinutes(5);
+    private static final String CHANGES_CONTEXT =
+            "nextPageToken,newStartPageToken,changes(fileId,removed,file(modifiedTime,trashed))";
+
+    @FunctionalInterface
+    private interface BatchItem<T> {
+        DriveRequest<T> build(String fileId) throws IOException;
+    }
+
+    /**
+     * Thrown inside a batch call when some items were rate limited or hit a server error, so the rate limiter backs
+     * off and resends only those items.
+     */
+    private static class RetryableBatchItemsException extends HttpResponseException {
+        RetryableBatchItemsException(int statusCode, int itemCount) {
+            super(new HttpResponseException.Builder(statusCode, null, new HttpHeaders())
+                    .setMessage(itemCount + " batch items failed with retryable errors"));
+        }
+    }
+
+    private final GoogleApiRateLimiter rateLimiter;
+    private final DriveUploadConfig uploadConfig;
+    private final Drive service;
+    private final AtomicLong bytesSaved = new AtomicLong();
+    private final Cache<String, DriveFileMetadata> metadataCache = CacheBuilder.newBuilder()
+            .maximumSize(METADATA_CACHE_SIZE)
+            .expireAfterWrite(METADATA_CACHE_TTL)
+            .recordStats()
+            .build();
 
     @Inject
-    public GoogleDrive(Credential credential, @Named("googleAppName") String applicationName) {
+    public GoogleDrive(Drive service, GoogleApiRateLimiter rateLimiter, DriveUploadConfig uploadConfig) {
         log.info("Initializing Google Drive service...");
-        this.credential = credential;
-        this.service = new Drive.Builder(
-                this.credential.getTransport(),
-                this.credential.getJsonFactory(),
-                this.credential)
-                .setApplicationName(applicationName)
-                .build();
+        this.service = service;
+        this.rateLimiter = rateLimiter;
+        this.uploadConfig = uploadConfig;
     }
 
     public void deleteFile(String fileId) throws IOException {
         log.info("Deleting file with ID: {}", fileId);
-        service.files().delete(fileId).execute();
+        metadataCache.invalidate(fileId);
+        try {
+            rateLimiter.execute(GoogleApiQuota.DRIVE, () -> service.files().delete(fileId).execute());
+        } finally {
+            // A concurrent lookup may have cached the file again while the delete was in flight
+            metadataCache.invalidate(fileId);
+        }
     }
 
     public String duplicateFile(String fileId, String fileName) throws IOException {
         log.info("Duplicating file with ID: {} to new file name: {}", fileId, fileName);
         Copy copyRequest = service.files().copy(fileId, new File().setName(fileName));
-        File copiedFile = copyRequest.execute();
+        File copiedFile = rateLimiter.executeNonIdempotent(GoogleApiQuota.DRIVE, copyRequest::execute);
         return copiedFile.getId();
     }
 
     public String uploadFile(String fileName, DriveMimeType mimeType, java.io.File fileContent) throws IOException {
-        log.info("Uploading file: {}", fileName);
+        return upload(fileName, new FileContent(mimeType.getMimeType(), fileContent), true);
+    }
+
+    public String uploadFile(String fileName, DriveMimeType mimeType, byte[] content) throws IOException {
+        return upload(fileName, new ByteArrayContent(mimeType.getMimeType(), content), true);
+    }
+
+    public String uploadFile(String fileName, DriveMimeType mimeType, ByteBuffer content) throws IOException {
+        return upload(fileName, toByteArrayContent(mimeType, content), true);
+    }
+
+    /**
+     * Uploads a stream of the given length, or -1 if unknown. The stream is read once, so the upload is not repeated
+     * from the start on failure; a resumable upload still resumes from the last confirmed offset. The caller closes the stream.
+     */
+    public String uploadFile(String fileName, DriveMimeType mimeType, InputStream content, long length) throws IOException {
+        return upload(fileName, new InputStreamContent(mimeType.getMimeType(), content).setLength(length).setCloseInputStream(false), false);
+    }
+
+    /**
+     * Replaces the content of a file, unless Drive's checksum of the current content already matches the new content.
+     * Returns true if the content was uploaded.
+     */
+    public boolean updateFile(String fileId, DriveMimeType mimeType, java.io.File newContent) throws IOException {
+        Path path = newContent.toPath();
+        if (matchesRemoteChecksum(fileId, java.nio.file.Files.isRegularFile(path) ? newContent.length() : -1,
+                algorithm -> digest(java.nio.file.Files.newInputStream(path), algorithm))) {
+            return false;
+        }
+        update(fileId, new FileContent(mimeType.getMimeType(), newContent), true);
+        return true;
+    }
+
+    /**
+     * Replaces the content of a file from memory, skipping the upload if the content is unchanged.
+     * Returns true if the content was uploaded.
+     */
+    public boolean updateFile(String fileId, DriveMimeType mimeType, byte[] newContent) throws IOException {
+        if (matchesRemoteChecksum(fileId, newContent.length, algorithm -> digest(new ByteArrayInputStream(newContent), algorithm))) {
+            return false;
+        }
+        update(fileId, new ByteArrayContent(mimeType.getMimeType(), newContent), true);
+        return true;
+    }
+
+    public boolean updateFile(String fileId, DriveMimeType mimeType, ByteBuffer newContent) throws IOException {
+        ByteArrayContent content = toByteArrayContent(mimeType, newContent);
+        if (matchesRemoteChecksum(fileId, content.getLength(), algorithm -> digest(content.getInputStream(), algorithm))) {
+            return false;
+        }
+        update(fileId, content, true);
+        return true;
+    }
+
+    /**
+     * Replaces the content of a file from a stream of the given length, or -1 if unknown. Streams cannot be compared
+     * against Drive's checksum without consuming them, so the content is always uploaded. The caller closes the stream.
+     */
+    public void updateFile(String fileId, DriveMimeType mimeType, InputStream newContent, long length) throws IOException {
+        update(fileId, new InputStreamContent(mimeType.getMimeType(), newContent).setLength(length).setCloseInputStream(false), false);
+    }
+
+    private String upload(String fileName, AbstractInputStreamContent mediaContent, boolean repeatable) throws IOException {
+        log.info("Uploading file: {} ({} bytes)", fileName, mediaContent.getLength());
         File fileMetadata = new File();
         fileMetadata.setName(fileName);
-        fileMetadata.setMimeType(mimeType.getMimeType());
+        fileMetadata.setMimeType(mediaContent.getType());
 
-        FileContent mediaContent = new FileContent(mimeType.getMimeType(), fileContent);
-        File file = service.files().create(fileMetadata, mediaContent).execute();
+        Drive.Files.Create create = service.files().create(fileMetadata, mediaContent);
+        configureUpload(create.getMediaHttpUploader(), mediaContent.getLength());
+        File file = repeatable
+                ? rateLimiter.executeNonIdempotent(GoogleApiQuota.DRIVE, create::execute)
+                : rateLimiter.executeOnce(GoogleApiQuota.DRIVE, create::execute);
         return file.getId();
     }
 
-    public void updateFile(String fileId, DriveMimeType mimeType, java.io.File newContent) throws IOException {
-        log.info("Updating content of file with ID: {}", fileId);
+    private void update(String fileId, AbstractInputStreamContent mediaContent, boolean repeatable) throws IOException {
+        log.info("Updating content of file with ID: {} ({} bytes)", fileId, mediaContent.getLength());
         File fileMetadata = new File();
-        fileMetadata.setMimeType(mimeType.getMimeType());
+        fileMetadata.setMimeType(mediaContent.getType());
+
+        Drive.Files.Update update = service.files().update(fileId, fileMetadata, mediaContent);
+        configureUpload(update.getMediaHttpUploader(), mediaContent.getLength());
+        metadataCache.invalidate(fileId);
+        try {
+            if (repeatable) {
+                rateLimiter.execute(GoogleApiQuota.DRIVE, update::execute);
+            } else {
+                rateLimiter.executeOnce(GoogleApiQuota.DRIVE, update::execute);
+            }
+        } finally {
+            // A failed upload may still have changed the file
+            metadataCache.invalidate(fileId);
+        }
+    }
+
+    /**
+     * Sends small content in one request and everything else as a chunked resumable upload. Resuming after a dropped
+     * connection relies on the IOException handler GoogleRequestInitializer installs for resumable upload requests.
+     */
+    private void configureUpload(MediaHttpUploader uploader, long length) {
+        uploader.setDirectUploadEnabled(length >= 0 && length <= uploadConfig.resumableThresholdBytes());
+        uploader.setChunkSize(uploadConfig.chunkSizeBytes());
+    }
+
+    private static ByteArrayContent toByteArrayContent(DriveMimeType mimeType, ByteBuffer content) {
+        ByteBuffer buffer = content.duplicate();
+        if (buffer.hasArray()) {
+            return new ByteArrayContent(mimeType.getMimeType(), buffer.array(), buffer.arrayOffset() + buffer.position(), buffer.remaining());
+        }
+        byte[] bytes = new byte[buffer.remaining()];
+        buffer.get(bytes);
+        return new ByteArrayContent(mimeType.getMimeType(), bytes);
+    }
+
+    // --------------------------- METADATA METHODS --------------------------
+
+    /**
+     * Returns the file's metadata, from the cache if it was fetched within METADATA_CACHE_TTL.
+     * Entries are invalidated when this instance updates or deletes the file, but edits made elsewhere are only seen
+     * once the entry expires.
+     */
+    public DriveFileMetadata getFileMetadata(String fileId) throws IOException {
+        DriveFileMetadata cached = metadataCache.getIfPresent(fileId);
+        return cached != null ? cached : fetchFileMetadata(fileId);
+    }
+
+    public MetadataCacheStats getMetadataCacheStats() {
+        CacheStats stats = metadataCache.stats();
+        return new MetadataCacheStats(stats.hitCount(), stats.missCount(), stats.evictionCount(), metadataCache.size());
+    }
+
+    public void invalidateMetadata(String fileId) {
+        metadataCache.invalidate(fileId);
+    }
 
-        FileContent mediaContent = new FileContent(mimeType.getMimeType(), newContent);
-        service.files().update(fileId, fileMetadata, mediaContent).execute();
+    /**
+     * Fetches the file's metadata from Drive, bypassing the cache, and caches the result.
+     */
+    private DriveFileMetadata fetchFileMetadata(String fileId) throws IOException {
+        log.info("Retrieving metadata for file with ID: {}", fileId);
+        File file = rateLimiter.execute(GoogleApiQuota.DRIVE, () -> service.files().get(fileId).setFields(METADATA_CONTEXT).execute());
+        return cacheMetadata(fileId, file);
+    }
+
+    private DriveFileMetadata cacheMetadata(String fileId, File file) {
+        DriveFileMetadata metadata = new DriveFileMetadata(
+                file.getId(),
+                file.getName(),
+                file.getMimeType(),
+                file.getModifiedTime(),
+                file.getSize(),
+                file.getMd5Checksum(),
+                file.getSha256Checksum());
+        metadataCache.put(fileId, metadata);
+        return metadata;
     }
 
     public DateTime getFileLastModifiedTime(String fileId) throws IOException {
-        log.info("Retrieving last modified time for file with ID: {}", fileId);
-        File file = service.files().get(fileId).setFields("modifiedTime").execute();
-        return file.getModifiedTime();
+        return getFileMetadata(fileId).modifiedTime();
     }
 
     public boolean fileExists(String fileId) {
-        log.info("Checking existence of file with ID: {}", fileId);
         try {
-            service.files().get(fileId).setFields("id").execute();
+            getFileMetadata(fileId);
             return true;
         } catch (IOException e) {
             log.warn("File with ID: {} does not exist.", fileId);
@@ -90,32 +300,317 @@ public class GoogleDrive {
     }
 
     public String downloadFile(String fileId) throws IOException {
-        log.info("Downloading file with ID to string memory: {}", fileId);
-        Path tempFileDir = Path.of(System.getProperty("java.io.tmpdir"));
-        Path tempFilePath = downloadFile(fileId, tempFileDir);
+        return downloadString(fileId, UNLIMITED_DOWNLOAD_SIZE);
+    }
+
+    /**
+     * Downloads a text file into memory as a trimmed UTF-8 string, see {@link #downloadBytes(String, int)}.
+     */
+    public String downloadString(String fileId, int maxBytes) throws IOException {
+        return new String(downloadBytes(fileId, maxBytes), StandardCharsets.UTF_8).trim();
+    }
+
+    public byte[] downloadBytes(String fileId) throws IOException {
+        return downloadBytes(fileId, UNLIMITED_DOWNLOAD_SIZE);
+    }
+
+    /**
+     * Downloads a file's content into memory with a single media request, without touching the filesystem.
+     * Throws an IOException if the file is larger than maxBytes.
+     */
+    public byte[] downloadBytes(String fileId, int maxBytes) throws IOException {
+        log.info("Downloading file with ID to memory: {}", fileId);
+        return rateLimiter.execute(GoogleApiQuota.DRIVE, () -> {
+            try (InputStream content = service.files().get(fileId).executeMediaAsInputStream()) {
+                byte[] bytes = content.readNBytes(maxBytes);
+                if (content.read() != -1) {
+                    throw new IOException(String.format("File %s exceeds the download limit of %d bytes", fileId, maxBytes));
+                }
+                return bytes;
+            }
+        });
+    }
+
+    public ByteBuffer downloadByteBuffer(String fileId) throws IOException {
+        return downloadByteBuffer(fileId, UNLIMITED_DOWNLOAD_SIZE);
+    }
 
-        String content = java.nio.file.Files.readString(tempFilePath);
+    /**
+     * Downloads a file's content into a read-only ByteBuffer, see {@link #downloadBytes(String, int)}.
+     */
+    public ByteBuffer downloadByteBuffer(String fileId, int maxBytes) throws IOException {
+        return ByteBuffer.wrap(downloadBytes(fileId, maxBytes)).asReadOnlyBuffer();
+    }
+
+    /**
+     * Downloads a file's content to the given path, unless the local file already has the same checksum as the one
+     * Drive reports. Returns true if the file was downloaded. The content is written to a temporary sibling and moved
+     * into place, so readers, including ones that memory-mapped the old file, never see a partial file.
+     */
+    public boolean downloadFileIfChanged(String fileId, Path localFile) throws IOException {
+        return downloadFileIfChanged(fileId, localFile, null);
+    }
+
+    /**
+     * Like {@link #downloadFileIfChanged(String, Path)}, comparing against metadata the caller has just fetched, such
+     * as with getFilesMetadata. If remote is null, the metadata is fetched first.
+     */
+    public boolean downloadFileIfChanged(String fileId, Path localFile, DriveFileMetadata remote) throws IOException {
+        if (matchesRemoteChecksum(fileId, remote, java.nio.file.Files.isRegularFile(localFile) ? java.nio.file.Files.size(localFile) : -1,
+                algorithm -> digest(java.nio.file.Files.newInputStream(localFile), algorithm))) {
+            return false;
+        }
+
+        Path tempFile = localFile.resolveSibling(localFile.getFileName() + ".download");
         try {
-            java.nio.file.Files.delete(tempFilePath);
-        } catch (IOException e) {
-            log.warn("Failed to delete temporary file: {}", tempFilePath, e);
+            java.nio.file.Files.write(tempFile, downloadBytes(fileId));
+            java.nio.file.Files.move(tempFile, localFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            java.nio.file.Files.deleteIfExists(tempFile);
         }
-        return content.trim();
+        return true;
+    }
+
+    /**
+     * Returns the number of bytes uploads and downloads skipped because the content was unchanged, since startup.
+     */
+    public long getBytesSaved() {
+        return bytesSaved.get();
+    }
+
+    /**
+     * Opens a stream over a file's content for large files that should not be held in memory. The caller must close it.
+     * Only opening the stream is retried; a failure while reading surfaces as an IOException from the stream.
+     */
+    public InputStream openDownloadStream(String fileId) throws IOException {
+        log.info("Opening download stream for file with ID: {}", fileId);
+        return rateLimiter.execute(GoogleApiQuota.DRIVE, () -> service.files().get(fileId).executeMediaAsInputStream());
     }
 
     public Path downloadFile(String fileId, Path directory) throws IOException {
         log.info("Downloading file with ID: {} to directory: {}", fileId, directory);
-        File file = service.files().get(fileId).setFields("name").execute();
-        Path filePath = directory.resolve(file.getName());
+        Path filePath = directory.resolve(getFileMetadata(fileId).name());
 
-        try (OutputStream outputStream = java.nio.file.Files.newOutputStream(
-                filePath,
-                StandardOpenOption.CREATE,
-                StandardOpenOption.TRUNCATE_EXISTING,
-                StandardOpenOption.WRITE)) {
-            service.files().get(fileId).executeMediaAndDownloadTo(outputStream);
-        }
+        // The file is reopened on every attempt so a retried download does not append to a partial one
+        rateLimiter.execute(GoogleApiQuota.DRIVE, () -> {
+            try (OutputStream outputStream = java.nio.file.Files.newOutputStream(
+                    filePath,
+                    StandardOpenOption.CREATE,
+                    StandardOpenOption.TRUNCATE_EXISTING,
+                    StandardOpenOption.WRITE)) {
+                service.files().get(fileId).executeMediaAndDownloadTo(outputStream);
+            }
+            return null;
+        });
 
         return filePath;
     }
+
+    @FunctionalInterface
+    private interface ContentDigest {
+        String compute(String algorithm) throws IOException;
+    }
+
+    /**
+     * Compares content of the given size with Drive's SHA-256 checksum of the file, or MD5 if that is all Drive has,
+     * and counts the bytes saved on a match. Returns false if the size is unknown (-1) or Drive has no checksum,
+     * as for Google Docs formats. The checksum is always fetched fresh, since a stale one could skip a needed transfer.
+     */
+    private boolean matchesRemoteChecksum(String fileId, long size, ContentDigest contentDigest) throws IOException {
+        return matchesRemoteChecksum(fileId, null, size, contentDigest);
+    }
+
+    private boolean matchesRemoteChecksum(String fileId, DriveFileMetadata remote, long size, ContentDigest contentDigest) throws IOException {
+        if (size < 0) return false;
+
+        if (remote == null) remote = fetchFileMetadata(fileId);
+        if (remote.size() != null && remote.size() != size) return false;
+
+        boolean matches;
+        if (remote.sha256Checksum() != null) {
+            matches = remote.sha256Checksum().equalsIgnoreCase(contentDigest.compute("SHA-256"));
+        } else if (remote.md5Checksum() != null) {
+            matches = remote.md5Checksum().equalsIgnoreCase(contentDigest.compute("MD5"));
+        } else {
+            return false;
+        }
+
+        if (matches) {
+            log.info("Content of file with ID: {} matches the Drive checksum; skipping transfer of {} bytes", fileId, size);
+            bytesSaved.addAndGet(size);
+        }
+        return matches;
+    }
+
+    private static String digest(InputStream content, String algorithm) throws IOException {
+        MessageDigest messageDigest;
+        try {
+            messageDigest = MessageDigest.getInstance(algorithm);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("Missing required digest algorithm " + algorithm, e);
+        }
+
+        try (InputStream in = new DigestInputStream(content, messageDigest)) {
+            in.transferTo(OutputStream.nullOutputStream());
+        }
+        return HexFormat.of().formatHex(messageDigest.digest());
+    }
+
+    // --------------------------- CHANGES METHODS ---------------------------
+
+    /**
+     * Returns a page token for the current head of the changes feed; pass it to listChanges later to get
+     * the changes made from now on.
+     */
+    public String getStartPageToken() throws IOException {
+        log.info("Retrieving changes start page token");
+        return rateLimiter.execute(GoogleApiQuota.DRIVE, () -> service.changes().getStartPageToken().execute())
+                .getStartPageToken();
+    }
+
+    /**
+     * Lists every change visible to the user since the given page token, following nextPageToken until the feed is
+     * exhausted. Only the fields needed to tell what changed are requested.
+     * Throws an IOException if the token is invalid or has expired, or if a page ends the feed without a new start
+     * token, in which case the caller has to fall back to a full sync.
+     */
+    public DriveChangeSet listChanges(String pageToken) throws IOException {
+        log.info("Listing changes since page token: {}", pageToken);
+        List<DriveFileChange> changes = new ArrayList<>();
+        String nextPageToken = pageToken;
+
+        while (true) {
+            String currentPageToken = nextPageToken;
+            ChangeList changeList = rateLimiter.execute(GoogleApiQuota.DRIVE, () -> service.changes().list(currentPageToken)
+                    .setFields(CHANGES_CONTEXT)
+                    .setPageSize(MAX_CHANGES_PAGE_SIZE)
+                    .setIncludeRemoved(true)
+                    .execute());
+
+            if (changeList.getChanges() != null) {
+                for (Change change : changeList.getChanges()) {
+                    boolean removed = Boolean.TRUE.equals(change.getRemoved())
+                            || change.getFile() == null
+                            || Boolean.TRUE.equals(change.getFile().getTrashed());
+                    changes.add(new DriveFileChange(change.getFileId(), removed, removed ? null : change.getFile().getModifiedTime()));
+                }
+            }
+
+            if (changeList.getNewStartPageToken() != null) {
+                log.info("Found {} changes since page token {}", changes.size(), pageToken);
+                return new DriveChangeSet(changes, changeList.getNewStartPageToken());
+            }
+            nextPageToken = changeList.getNextPageToken();
+            if (nextPageToken == null) {
+                throw new IOException("Drive changes feed returned neither nextPageToken nor newStartPageToken");
+            }
+        }
+    }
+
+    // ---------------------------- BATCH METHODS ----------------------------
+
+    /**
+     * Checks which of the given files exist, MAX_BATCH_SIZE files per HTTP request. A file that is not found is a
+     * successful result with value false; other errors are reported per file.
+     */
+    public Map<String, DriveBatchResult<Boolean>> filesExist(Collection<String> fileIds) throws IOException {
+        log.info("Checking existence of {} files in batches", fileIds.size());
+        Map<String, DriveBatchResult<Boolean>> results = new LinkedHashMap<>();
+        executeBatch(fileIds, fileId -> service.files().get(fileId).setFields("id")).forEach((fileId, result) ->
+            results.put(fileId, result.isSuccess() || result.errorCode() == NOT_FOUND
+                    ? DriveBatchResult.success(fileId, result.isSuccess())
+                    : DriveBatchResult.failure(fileId, result.errorCode(), result.errorMessage())));
+        return results;
+    }
+
+    /**
+     * Retrieves the last modified time of each of the given files, MAX_BATCH_SIZE files per HTTP request.
+     */
+    public Map<String, DriveBatchResult<DateTime>> getFilesLastModifiedTime(Collection<String> fileIds) throws IOException {
+        log.info("Retrieving last modified time for {} files in batches", fileIds.size());
+        Map<String, DriveBatchResult<DateTime>> results = new LinkedHashMap<>();
+        executeBatch(fileIds, fileId -> service.files().get(fileId).setFields("modifiedTime")).forEach((fileId, result) ->
+            results.put(fileId, result.isSuccess()
+                    ? DriveBatchResult.success(fileId, result.value().getModifiedTime())
+                    : DriveBatchResult.failure(fileId, result.errorCode(), result.errorMessage())));
+        return results;
+    }
+
+    /**
+     * Fetches the metadata of each of the given files from Drive, bypassing and refreshing the cache, MAX_BATCH_SIZE
+     * files per HTTP request.
+     */
+    public Map<String, DriveBatchResult<DriveFileMetadata>> getFilesMetadata(Collection<String> fileIds) throws IOException {
+        log.info("Retrieving metadata for {} files in batches", fileIds.size());
+        Map<String, DriveBatchResult<DriveFileMetadata>> results = new LinkedHashMap<>();
+        executeBatch(fileIds, fileId -> service.files().get(fileId).setFields(METADATA_CONTEXT)).forEach((fileId, result) ->
+            results.put(fileId, result.isSuccess()
+                    ? DriveBatchResult.success(fileId, cacheMetadata(fileId, result.value()))
+                    : DriveBatchResult.failure(fileId, result.errorCode(), result.errorMessage())));
+        return results;
+    }
+
+    /**
+     * Deletes the given files, MAX_BATCH_SIZE files per HTTP request. Failed deletes are reported per file.
+     */
+    public Map<String, DriveBatchResult<Void>> deleteFiles(Collection<String> fileIds) throws IOException {
+        log.info("Deleting {} files in batches", fileIds.size());
+        metadataCache.invalidateAll(fileIds);
+        try {
+            return executeBatch(fileIds, fileId -> service.files().delete(fileId));
+        } finally {
+            metadataCache.invalidateAll(fileIds);
+        }
+    }
+
+    /**
+     * Queues one request per distinct file ID into multipart batch requests of up to MAX_BATCH_SIZE items and returns
+     * the per-file results in the order given. Each item counts against the Drive quota.
+     * Items that are rate limited or hit a server error are resent through the rate limiter, with its backoff, in a
+     * batch of just those items; once its attempts run out their last error is reported as the item's result.
+     */
+    private <T> Map<String, DriveBatchResult<T>> executeBatch(Collection<String> fileIds, BatchItem<T> item) throws IOException {
+        List<String> distinctIds = fileIds.stream().distinct().toList();
+        Map<String, DriveBatchResult<T>> results = new LinkedHashMap<>();
+        distinctIds.forEach(fileId -> results.put(fileId, null));
+
+        for (int start = 0; start < distinctIds.size(); start += MAX_BATCH_SIZE) {
+            List<String> pending = new ArrayList<>(distinctIds.subList(start, Math.min(start + MAX_BATCH_SIZE, distinctIds.size())));
+            try {
+                rateLimiter.execute(GoogleApiQuota.DRIVE, pending::size, () -> {
+                    BatchRequest batch = service.batch();
+                    List<String> retryable = new ArrayList<>();
+                    int[] retryStatus = {0};
+                    for (String fileId : pending) {
+                        item.build(fileId).queue(batch, new JsonBatchCallback<T>() {
+                            @Override
+                            public void onSuccess(T value, HttpHeaders responseHeaders) {
+                                results.put(fileId, DriveBatchResult.success(fileId, value));
+                            }
+
+                            @Override
+                            public void onFailure(GoogleJsonError error, HttpHeaders responseHeaders) {
+                                results.put(fileId, DriveBatchResult.failure(fileId, error.getCode(), error.getMessage()));
+                                if (GoogleApiRateLimiter.isRateLimited(error.getCode(), error)) {
+                                    retryable.add(fileId);
+                                    retryStatus[0] = 429;
+                                } else if (error.getCode() >= 500) {
+                                    retryable.add(fileId);
+                                    if (retryStatus[0] == 0) retryStatus[0] = error.getCode();
+                                }
+                            }
+                        });
+                    }
+                    batch.execute();
+                    if (retryable.isEmpty()) return null;
+
+                    pending.retainAll(retryable);
+                    throw new RetryableBatchItemsException(retryStatus[0], retryable.size());
+                });
+            } catch (RetryableBatchItemsException e) {
+                log.warn("{} Drive batch items still failed after retrying; reporting them as failures", pending.size());
+            }
+        }
+        return results;
+    }
 }
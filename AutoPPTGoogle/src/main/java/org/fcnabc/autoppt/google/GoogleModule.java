@@ -1,22 +1,51 @@
 package org.fcnabc.autoppt.google;
 
 import java.io.IOException;
+import java.net.http.HttpClient;
 import java.security.GeneralSecurityException;
+import lombok.extern.slf4j.Slf4j;
 
 import com.google.inject.AbstractModule;
+import com.google.inject.Provider;
 import com.google.inject.Provides;
 import com.google.inject.Singleton;
+import com.google.inject.name.Named;
 import com.google.inject.name.Names;
 import com.google.api.client.googleapis.javanet.GoogleNetHttpTransport;
+import com.google.api.client.http.HttpTransport;
 import com.google.api.client.http.javanet.NetHttpTransport;
+import com.google.api.services.drive.Drive;
+import com.google.api.services.slides.v1.Slides;
 
 import com.google.api.client.auth.oauth2.Credential;
 
+import org.fcnabc.autoppt.google.models.DriveUploadConfig;
+import org.fcnabc.autoppt.google.models.HttpTransportConfig;
+
+@Slf4j
 public class GoogleModule extends AbstractModule {
-    
+    // JVM-wide java.net.http settings, read once when the first HttpClient in the process is created
+    private static final String CONNECTION_POOL_SIZE_PROPERTY = "jdk.httpclient.connectionPoolSize";
+    private static final String KEEP_ALIVE_PROPERTY = "jdk.httpclient.keepalive.timeout";
+    private static final String KEEP_ALIVE_H2_PROPERTY = "jdk.httpclient.keepalive.timeout.h2";
+
+    private final HttpTransportConfig transportConfig;
+    private final DriveUploadConfig uploadConfig;
+
+    public GoogleModule() {
+        this(HttpTransportConfig.defaults(), DriveUploadConfig.defaults());
+    }
+
+    public GoogleModule(HttpTransportConfig transportConfig, DriveUploadConfig uploadConfig) {
+        this.transportConfig = transportConfig;
+        this.uploadConfig = uploadConfig;
+    }
+
     @Override 
     protected void configure() {
         bindConstant().annotatedWith(Names.named("googleAppName")).to("AutoPPT");
+        bind(HttpTransportConfig.class).toInstance(transportConfig);
+        bind(DriveUploadConfig.class).toInstance(uploadConfig);
     }
 
     @Provides
@@ -25,9 +54,90 @@ public class GoogleModule extends AbstractModule {
         return GoogleNetHttpTransport.newTrustedTransport();
     }
 
+    /**
+     * The transport used by the Slides and Drive clients, selected by HttpTransportConfig.transportType(). The
+     * NetHttpTransport is only built when it is selected.
+     */
+    @Provides
+    @Singleton
+    HttpTransport provideHttpTransport(HttpTransportConfig config, Provider<NetHttpTransport> netHttpTransport) {
+        return switch (config.transportType()) {
+            case NET_HTTP -> netHttpTransport.get();
+            case JDK_HTTP2 -> {
+                applyConnectionPoolSettings(config);
+                yield new JdkHttpTransport(HttpClient.newBuilder()
+                        .version(HttpClient.Version.HTTP_2)
+                        .connectTimeout(config.connectTimeout())
+                        .followRedirects(HttpClient.Redirect.NORMAL)
+                        .build());
+            }
+        };
+    }
+
+    /**
+     * java.net.http has no per-client pool settings, only JVM-wide system properties. They are read once, when the first
+     * HttpClient in the process is created, so they are ignored if one already exists, and they apply to every other
+     * HttpClient in the process too. A property already set, such as on the command line, is left alone.
+     */
+    private static void applyConnectionPoolSettings(HttpTransportConfig config) {
+        log.warn("HTTP/2 connection pool settings (maxConnections {}, keepAlive {}) are JVM-wide and best-effort: "
+                + "they have no effect if an HttpClient was created before this transport.", config.maxConnections(), config.keepAlive());
+        setIfAbsent(CONNECTION_POOL_SIZE_PROPERTY, String.valueOf(config.maxConnections()));
+        setIfAbsent(KEEP_ALIVE_PROPERTY, String.valueOf(config.keepAlive().toSeconds()));
+        setIfAbsent(KEEP_ALIVE_H2_PROPERTY, String.valueOf(config.keepAlive().toSeconds()));
+    }
+
+    private static void setIfAbsent(String property, String value) {
+        Object existing = System.getProperties().putIfAbsent(property, value);
+        if (existing != null && !existing.equals(value)) {
+            log.warn("System property {} is already set to {}; ignoring the configured {}", property, existing, value);
+        }
+    }
+
+    @Provides
+    @Singleton
+    Credential provideCredential(GoogleCredentialManager credentialManager) throws IOException {
+        return credentialManager.getCredential();
+    }
+
+    @Provides
+    @Singleton
+    GoogleRequestInitializer provideRequestInitializer(Credential credential, HttpTransportConfig config) {
+        return new GoogleRequestInitializer(credential, config);
+    }
+
+    /**
+     * A single Slides client shared by every GoogleSlides editing session.
+     */
+    @Provides
+    @Singleton
+    Slides provideSlides(
+        HttpTransport transport,
+        Credential credential,
+        GoogleRequestInitializer requestInitializer,
+        @Named("googleAppName") String applicationName
+    ) {
+        return new Slides.Builder(
+                transport,
+                credential.getJsonFactory(),
+                requestInitializer)
+                .setApplicationName(applicationName)
+                .build();
+    }
+
     @Provides
     @Singleton
-    Credential provideCredential(GoogleAuth googleAuth) throws IOException {
-        return googleAuth.getCredentials();
+    Drive provideDrive(
+        HttpTransport transport,
+        Credential credential,
+        GoogleRequestInitializer requestInitializer,
+        @Named("googleAppName") String applicationName
+    ) {
+        return new Drive.Builder(
+                transport,
+                credential.getJsonFactory(),
+                requestInitializer)
+                .setApplicationName(applicationName)
+                .build();
     }
 }
@@ -0,0 +1,75 @@
+package org.fcnabc.autoppt.google;
+
+import java.io.IOException;
+
+import com.google.api.client.auth.oauth2.Credential;
+import com.google.api.client.http.GZipEncoding;
+import com.google.api.client.http.HttpBackOffIOExceptionHandler;
+import com.google.api.client.http.HttpBackOffUnsuccessfulResponseHandler;
+import com.google.api.client.http.HttpExecuteInterceptor;
+import com.google.api.client.http.HttpIOExceptionHandler;
+import com.google.api.client.http.HttpRequest;
+import com.google.api.client.http.HttpRequestInitializer;
+import com.google.api.client.http.HttpUnsuccessfulResponseHandler;
+import com.google.api.client.util.ExponentialBackOff;
+
+import org.fcnabc.autoppt.google.models.HttpTransportConfig;
+
+/**
+ * Authorizes every Slides and Drive request with the credential and applies the configured timeouts and gzip settings.
+ * With gzip on, request bodies are compressed and "(gzip)" is added to the User-Agent, which Google APIs require
+ * before they compress responses in addition to the Accept-Encoding header.
+ * Requests of a resumable upload session are retried with backoff on I/O errors and 5xx responses; MediaHttpUploader
+ * then asks the server for the confirmed offset and resumes from there. Other requests are retried by GoogleApiRateLimiter.
+ */
+class GoogleRequestInitializer implements HttpRequestInitializer {
+    private static final String GZIP_USER_AGENT = "(gzip)";
+    private static final String UPLOAD_TYPE_PARAMETER = "uploadType";
+    private static final String RESUMABLE_UPLOAD_TYPE = "resumable";
+
+    private final Credential credential;
+    private final HttpTransportConfig config;
+
+    GoogleRequestInitializer(Credential credential, HttpTransportConfig config) {
+        this.credential = credential;
+        this.config = config;
+    }
+
+    @Override
+    public void initialize(HttpRequest request) throws IOException {
+        credential.initialize(request);
+        request.setConnectTimeout((int) config.connectTimeout().toMillis());
+        request.setReadTimeout((int) config.readTimeout().toMillis());
+
+        // The URL is only set after initialization, so whether this is an upload request is checked when handling the failure
+        HttpIOExceptionHandler ioExceptionHandler = new HttpBackOffIOExceptionHandler(new ExponentialBackOff());
+        request.setIOExceptionHandler((r, supportsRetry) ->
+                isResumableUpload(r) && ioExceptionHandler.handleIOException(r, supportsRetry));
+
+        HttpUnsuccessfulResponseHandler credentialHandler = request.getUnsuccessfulResponseHandler();
+        HttpUnsuccessfulResponseHandler serverErrorHandler = new HttpBackOffUnsuccessfulResponseHandler(new ExponentialBackOff())
+                .setBackOffRequired(HttpBackOffUnsuccessfulResponseHandler.BackOffRequired.ON_SERVER_ERROR);
+        request.setUnsuccessfulResponseHandler((r, response, supportsRetry) ->
+                (credentialHandler != null && credentialHandler.handleResponse(r, response, supportsRetry))
+                || (isResumableUpload(r) && serverErrorHandler.handleResponse(r, response, supportsRetry)));
+
+        if (!config.gzip()) return;
+
+        // Content is only attached after initialization, so compression is decided right before the request is sent
+        HttpExecuteInterceptor credentialInterceptor = request.getInterceptor();
+        request.setInterceptor(r -> {
+            if (credentialInterceptor != null) credentialInterceptor.intercept(r);
+            if (r.getContent() != null && r.getEncoding() == null) {
+                r.setEncoding(new GZipEncoding());
+            }
+            String userAgent = r.getHeaders().getUserAgent();
+            if (userAgent == null || !userAgent.contains(GZIP_USER_AGENT)) {
+                r.getHeaders().setUserAgent(userAgent == null ? GZIP_USER_AGENT : userAgent + " " + GZIP_USER_AGENT);
+            }
+        });
+    }
+
+    private static boolean isResumableUpload(HttpRequest request) {
+        return request.getUrl() != null && RESUMABLE_UPLOAD_TYPE.equals(request.getUrl().getFirst(UPLOAD_TYPE_PARAMETER));
+    }
+}
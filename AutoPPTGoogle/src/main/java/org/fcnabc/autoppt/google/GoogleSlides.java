@@ -1,16 +1,25 @@
 package org.fcnabc.autoppt.google;
 
 import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 import java.util.Map;
 import java.util.HashMap;
 import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
 import lombok.extern.slf4j.Slf4j;
 
-import com.google.api.client.auth.oauth2.Credential;
+import com.google.api.client.googleapis.json.GoogleJsonResponseException;
+import com.google.api.client.http.HttpResponseException;
 import com.google.api.services.slides.v1.Slides;
 import com.google.api.services.slides.v1.model.BatchUpdatePresentationRequest;
+import com.google.api.services.slides.v1.model.BatchUpdatePresentationResponse;
 import com.google.api.services.slides.v1.model.DeleteTextRequest;
 import com.google.api.services.slides.v1.model.Dimension;
 import com.google.api.services.slides.v1.model.DuplicateObjectRequest;
@@ -22,49 +31,53 @@ import com.google.api.services.slides.v1.model.PageElement;
 import com.google.api.services.slides.v1.model.ParagraphStyle;
 import com.google.api.services.slides.v1.model.Presentation;
 import com.google.api.services.slides.v1.model.Range;
+import com.google.api.services.slides.v1.model.ReplaceAllTextRequest;
 import com.google.api.services.slides.v1.model.Request;
 import com.google.api.services.slides.v1.model.RgbColor;
-import com.google.api.services.slides.v1.model.Table;
-import com.google.api.services.slides.v1.model.TableCell;
+import com.google.api.services.slides.v1.model.SubstringMatchCriteria;
 import com.google.api.services.slides.v1.model.TableCellLocation;
-import com.google.api.services.slides.v1.model.TableRow;
 import com.google.api.services.slides.v1.model.TextStyle;
 import com.google.api.services.slides.v1.model.UpdateParagraphStyleRequest;
 import com.google.api.services.slides.v1.model.UpdateTextStyleRequest;
+import com.google.api.services.slides.v1.model.WriteControl;
 import com.google.inject.Inject;
-import com.google.inject.name.Named;
 
+import org.fcnabc.autoppt.google.models.BatchChunkResult;
+import org.fcnabc.autoppt.google.models.GoogleApiQuota;
 import org.fcnabc.autoppt.google.models.ParagraphAlignment;
+import org.fcnabc.autoppt.google.models.PlaceholderLocation;
+import org.fcnabc.autoppt.google.models.PresentationProjection;
+import org.fcnabc.autoppt.google.models.RequestOptimizationResult;
 import org.fcnabc.autoppt.google.models.SlideObject;
 
 /**
  * A wrapper around the Google Slides API that provides higher-level methods for common operations on slides, 
  * such as duplication, deletion, and text updates.
- * To optimize performance, this class batches multiple operations together and executes them in a single API call.
+ * Each instance is an editing session for one presentation with its own request buffer and ID allocator; sessions are
+ * thread-safe and share the injected Slides service (and its HTTP transport). Use GoogleSlidesFactory to open sessions.
+ * To optimize performance, this class batches multiple operations together and executes them in as few API calls as possible;
+ * large batches are split into bounded chunks that are sent in order. All calls go through the shared GoogleApiRateLimiter.
  */
 @Slf4j
 public class GoogleSlides {
-    private static final String DUPLICATE_SUFFIX = "_dup_%d";
     private static final String FONT_DIMENSION_UNIT = "PT";
-    private static final String PRESENTATION_CONTEXT = "presentationId,slides";
+    private static final String REVISION_CONTEXT = "revisionId";
+    private static final int MAX_REQUESTS_PER_BATCH = 200;
+    private static final long MAX_BATCH_PAYLOAD_BYTES = 512 * 1024;
 
-    private List<Request> requests = new ArrayList<>();
-    private Presentation presentation = null;
-    private int duplicateCounter = 0;
+    private final List<Request> requests = new ArrayList<>();
+    private final ObjectIdAllocator idAllocator = new ObjectIdAllocator();
+    private PresentationModel presentation = null;
 
-    private final Credential credential;
-    private Slides service;
+    private final Slides service;
+    private final PresentationSnapshotCache snapshotCache;
+    private final GoogleApiRateLimiter rateLimiter;
 
     @Inject
-    public GoogleSlides(Credential credential, @Named("googleAppName") String applicationName) {
-        log.info("Initializing Google Slides service...");
-        this.credential = credential;
-        this.service = new Slides.Builder(
-                this.credential.getTransport(),
-                this.credential.getJsonFactory(),
-                this.credential)
-                .setApplicationName(applicationName)
-                .build();
+    public GoogleSlides(Slides service, PresentationSnapshotCache snapshotCache, GoogleApiRateLimiter rateLimiter) {
+        this.service = service;
+        this.snapshotCache = snapshotCache;
+        this.rateLimiter = rateLimiter;
     }
 
     // ------------------------- VALIDATION METHODS ----------------------------
@@ -82,33 +95,212 @@ public class GoogleSlides {
         }
     }
 
+    private static BatchUpdateChunker.Chunk awaitChunk(CompletableFuture<BatchUpdateChunker.Chunk> chunk) throws IOException {
+        try {
+            return chunk.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof UncheckedIOException uncheckedIOException) {
+                throw uncheckedIOException.getCause();
+            }
+            throw e;
+        }
+    }
+
+    private static boolean isServerError(IOException e) {
+        return e instanceof HttpResponseException responseException && responseException.getStatusCode() >= 500;
+    }
+
+    /**
+     * Returns true if the presentation is still at the revision the local model holds, so a failed write was not
+     * applied. Returns false if the revision moved, is unknown, or cannot be read.
+     */
+    private boolean isRevisionUnchanged(String presentationId) {
+        if (presentation.getRevisionId() == null) return false;
+        try {
+            return presentation.getRevisionId().equals(fetchRevisionId(presentationId));
+        } catch (IOException e) {
+            log.warn("Failed to read the revision of presentation {} after a failed update: {}", presentationId, e.getMessage());
+            return false;
+        }
+    }
+
+    private static boolean isRevisionMismatch(IOException e) {
+        return e instanceof GoogleJsonResponseException responseException
+                && responseException.getStatusCode() == 400
+                && responseException.getDetails() != null
+                && "FAILED_PRECONDITION".equals(responseException.getDetails().get("status"));
+    }
+
     // -------------------------- EXECUTE METHODS ----------------------------
 
     /**
      * Sets the current presentation context by loading the presentation with the given ID. This also resets any pending requests.
      * Run this before performing any operations on slides!
-     * Retrieve only the necessary fields (presentationId and slides) to minimize API response size and improve performance.
+     * Retrieve only the necessary fields (presentationId, revisionId and slides) to minimize API response size and improve performance.
+     * If the presentation has not changed since it was last downloaded, it is read from the on-disk snapshot cache instead.
+     */
+    public synchronized void setPresentationContext(String presentationId) throws IOException {
+        setPresentationContext(presentationId, PresentationProjection.FULL);
+    }
+
+    /**
+     * Sets the presentation context, loading only the fields of the given projection profile. Getters that need content
+     * the profile does not include throw an IllegalStateException; refreshes keep using the same profile.
      */
-    public void setPresentationContext(String presentationId) throws IOException {
-        log.info("Setting presentation context for presentation ID: {}", presentationId);
+    public synchronized void setPresentationContext(String presentationId, PresentationProjection projection) throws IOException {
+        log.info("Setting presentation context for presentation ID: {} ({})", presentationId, projection);
         this.requests.clear();
-        this.presentation = service.presentations().get(presentationId)
-                    .setFields(PRESENTATION_CONTEXT)
-                    .execute();
+        this.presentation = loadPresentation(presentationId, fetchRevisionId(presentationId), projection);
     }
 
-    public void executeUpdates() throws IOException {
-        log.info("Executing batch update with {} requests on presentation ID: {}", requests.size(), presentation.getPresentationId());
+    /**
+     * Reloads the current presentation from the API, discarding the local model but keeping any pending requests.
+     */
+    public synchronized void refreshPresentationContext() throws IOException {
+        validatePresentationContext();
+        log.info("Refreshing presentation context for presentation ID: {}", presentation.getPresentationId());
+        String presentationId = presentation.getPresentationId();
+        this.presentation = loadPresentation(presentationId, fetchRevisionId(presentationId), presentation.getProjection());
+    }
+
+    /**
+     * Checks the presentation's revision ID against the local model and reloads it only if it was changed elsewhere
+     * (or if the local model could not mirror an update). The check itself only fetches the revisionId field.
+     * Returns true if the presentation was reloaded.
+     */
+    public synchronized boolean syncPresentationContext() throws IOException {
         validatePresentationContext();
+        String remoteRevisionId = fetchRevisionId(presentation.getPresentationId());
+
+        if (!presentation.isStale() && Objects.equals(remoteRevisionId, presentation.getRevisionId())) {
+            return false;
+        }
+        log.info("Presentation {} changed since it was loaded ({} -> {}); refreshing.",
+                presentation.getPresentationId(), presentation.getRevisionId(), remoteRevisionId);
+        this.presentation = loadPresentation(presentation.getPresentationId(), remoteRevisionId, presentation.getProjection());
+        return true;
+    }
+
+    private String fetchRevisionId(String presentationId) throws IOException {
+        return rateLimiter.execute(GoogleApiQuota.SLIDES_READ, () -> service.presentations().get(presentationId)
+                    .setFields(REVISION_CONTEXT)
+                    .execute())
+                .getRevisionId();
+    }
+
+    private PresentationModel loadPresentation(String presentationId, String revisionId, PresentationProjection projection)
+            throws IOException {
+        Optional<Presentation> snapshot = snapshotCache.load(presentationId, revisionId, projection);
+        if (snapshot.isPresent()) {
+            return new PresentationModel(snapshot.get(), projection);
+        }
 
-        if (requests.isEmpty()) return;
+        Presentation loaded = rateLimiter.execute(GoogleApiQuota.SLIDES_READ, () -> service.presentations().get(presentationId)
+                    .setFields(projection.getFields())
+                    .execute());
+        snapshotCache.save(loaded, projection);
+        return new PresentationModel(loaded, projection);
+    }
 
-        BatchUpdatePresentationRequest body = new BatchUpdatePresentationRequest().setRequests(requests);
+    /**
+     * Coalesces the pending request queue: drops writes that a later request supersedes, merges style updates on the same
+     * range and skips edits to objects that are deleted later in the batch. executeUpdates() runs this automatically.
+     */
+    public synchronized RequestOptimizationResult optimizeRequests() {
+        validatePresentationContext();
+        int requestsBefore = requests.size();
+        List<Request> optimized = new BatchRequestOptimizer(presentation.getPageIds()).optimize(requests);
+        requests.clear();
+        requests.addAll(optimized);
+
+        RequestOptimizationResult result = new RequestOptimizationResult(requestsBefore, requests.size());
+        log.info("Optimized pending requests: {} -> {} ({} removed)", result.requestsBefore(), result.requestsAfter(), result.removedCount());
+        return result;
+    }
+
+    /**
+     * Sends all pending requests and applies them to the local presentation model, so the presentation does not need to be reloaded.
+     * Requests are split into chunks bounded by MAX_REQUESTS_PER_BATCH and MAX_BATCH_PAYLOAD_BYTES and submitted in order;
+     * the next chunk is planned and serialized while the current one is in flight.
+     * Each chunk requires the revision the previous one produced, so an edit made elsewhere in the meantime makes the
+     * chunk fail instead of being applied to content the local model does not know about.
+     * If a chunk fails, the chunks before it stay applied and the failed and remaining requests are kept pending.
+     * A chunk that fails with a 5xx is not retried, since the server may have applied it anyway. If the presentation's
+     * revision moved, the chunk's outcome is unknown: its requests are dropped rather than kept pending, so a retry
+     * cannot apply them twice, and the model is marked stale.
+     * Returns the per-chunk sizes and latencies.
+     */
+    public synchronized List<BatchChunkResult> executeUpdates() throws IOException {
+        validatePresentationContext();
+        log.info("Executing batch update with {} requests on presentation ID: {}", requests.size(), presentation.getPresentationId());
+
+        if (requests.isEmpty()) return List.of();
+
+        optimizeRequests();
         String presentationId = this.presentation.getPresentationId();
+        BatchUpdateChunker chunker = new BatchUpdateChunker(
+                List.copyOf(requests), service.getJsonFactory(), MAX_REQUESTS_PER_BATCH, MAX_BATCH_PAYLOAD_BYTES);
+        List<BatchChunkResult> results = new ArrayList<>();
+        int appliedRequests = 0;
+
+        CompletableFuture<BatchUpdateChunker.Chunk> nextChunk = CompletableFuture.supplyAsync(chunker::next);
+        BatchUpdateChunker.Chunk chunk;
+        while ((chunk = awaitChunk(nextChunk)) != null) {
+            // Plan the following chunk while this one is in flight; the chunker is only ever used by one thread at a time
+            nextChunk = CompletableFuture.supplyAsync(chunker::next);
+
+            BatchUpdatePresentationRequest body = new BatchUpdatePresentationRequest().setRequests(chunk.requests());
+            if (presentation.getRevisionId() != null) {
+                body.setWriteControl(new WriteControl().setRequiredRevisionId(presentation.getRevisionId()));
+            }
+            long start = System.nanoTime();
+            BatchUpdatePresentationResponse response;
+            try {
+                response = rateLimiter.execute(GoogleApiQuota.SLIDES_WRITE,
+                        () -> service.presentations().batchUpdate(presentationId, body).execute());
+            } catch (IOException e) {
+                nextChunk.cancel(false);
+                requests.subList(0, appliedRequests).clear();
+                if (isServerError(e) && !isRevisionUnchanged(presentationId)) {
+                    requests.subList(0, chunk.requests().size()).clear();
+                    presentation.markStale();
+                    throw new IOException(String.format(
+                            "Batch update failed on chunk %d of presentation %s with HTTP %d and may have been applied; "
+                            + "%d requests were applied, %d were dropped because their outcome is unknown and %d remain pending. "
+                            + "Call syncPresentationContext() and check the presentation before retrying.",
+                            results.size(), presentationId, ((HttpResponseException) e).getStatusCode(),
+                            appliedRequests, chunk.requests().size(), requests.size()), e);
+                }
+                if (isRevisionMismatch(e)) {
+                    presentation.markStale();
+                    throw new IOException(String.format(
+                            "Presentation %s was modified elsewhere since revision %s; %d requests were applied and %d remain pending. "
+                            + "Call syncPresentationContext() before retrying.",
+                            presentationId, presentation.getRevisionId(), appliedRequests, requests.size()), e);
+                }
+                throw new IOException(String.format(
+                        "Batch update failed on chunk %d; %d requests were applied and %d remain pending",
+                        results.size(), appliedRequests, requests.size()), e);
+            }
+            long latencyMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+            presentation.apply(chunk.requests());
+            if (response.getWriteControl() != null) {
+                presentation.setRevisionId(response.getWriteControl().getRequiredRevisionId());
+            }
+
+            BatchChunkResult result = new BatchChunkResult(results.size(), chunk.requests().size(), chunk.payloadBytes(), latencyMillis);
+            log.info("Batch chunk {} applied: {} requests, {} bytes in {} ms",
+                    result.chunkIndex(), result.requestCount(), result.payloadBytes(), result.latencyMillis());
+            results.add(result);
+            appliedRequests += chunk.requests().size();
+        }
 
-        // Execute the batch update and refresh the presentation state
-        service.presentations().batchUpdate(presentationId, body).execute();
-        setPresentationContext(presentationId);
+        requests.clear();
+        if (presentation.isStale()) {
+            refreshPresentationContext();
+        }
+        return results;
     }
 
     // ------------------------- DUPLICATION METHODS -------------------------
@@ -118,33 +310,95 @@ public class GoogleSlides {
      * Returns a mapping from original object IDs to duplicated object IDs for the duplicated slide and all text elements within it, 
      * which can be used for subsequent updates to the duplicated content within the same batch request.
      */
-    public Map<SlideObject, SlideObject> duplicateSlide(int slideIndex) {
+    public synchronized Map<SlideObject, SlideObject> duplicateSlide(int slideIndex) {
+        return cloneSlide(slideIndex, 1).get(0);
+    }
+
+    /**
+     * Makes count copies of a slide in one pass; the copies are placed right after the source slide, in the order returned.
+     * Returns one mapping per copy from original object IDs to the copy's object IDs, for the slide and all text elements within it.
+     * Every element on the slide is given an explicit, fixed-length ID so the local presentation model can mirror the copies exactly.
+     * If the presentation was loaded without text content, the mappings only contain the slide itself.
+     */
+    public synchronized List<Map<SlideObject, SlideObject>> cloneSlide(int slideIndex, int count) {
         validatePresentationContext();
         validateSlideIndex(slideIndex);
+        if (count < 1) {
+            throw new IllegalArgumentException("Clone count must be positive: " + count);
+        }
 
         String slideId = getSlideId(slideIndex);
+        List<String> elementIds = PresentationModel.collectElementIds(presentation.getSlides().get(slideIndex));
+        Set<SlideObject> textObjects = presentation.getTextIndex().getTextElements(slideId).keySet();
+
+        List<Map<SlideObject, SlideObject>> copies = new ArrayList<>(count);
+        List<Request> duplicateRequests = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            Map<String, String> dupIdMapping = new HashMap<>();
+            dupIdMapping.put(slideId, idAllocator.next());
+            elementIds.forEach(id -> dupIdMapping.put(id, idAllocator.next()));
+
+            // Table cells share their table's object ID, so they all map to the same duplicated table
+            Map<SlideObject, SlideObject> dupObjectMapping = new HashMap<>();
+            dupObjectMapping.put(new SlideObject(slideId), new SlideObject(dupIdMapping.get(slideId)));
+            textObjects.forEach(so ->
+                 dupObjectMapping.put(so,
+                    new SlideObject(dupIdMapping.get(so.id()), so.rowIndex(), so.columnIndex(), so.isTableCell()))
+            );
+            copies.add(dupObjectMapping);
+
+            DuplicateObjectRequest duplicateRequest = new DuplicateObjectRequest()
+                    .setObjectId(slideId)
+                    .setObjectIds(dupIdMapping);
+            duplicateRequests.add(new Request().setDuplicateObject(duplicateRequest));
+        }
 
-        Map<SlideObject, SlideObject> dupObjectMapping = new HashMap<>();
-        dupObjectMapping.put(new SlideObject(slideId), new SlideObject(slideId + String.format(DUPLICATE_SUFFIX, duplicateCounter++)));
-        getTextElementsInSlide(slideIndex).keySet().forEach(so -> 
-             dupObjectMapping.put(so,
-                new SlideObject(so.id() + String.format(DUPLICATE_SUFFIX, duplicateCounter++), so.rowIndex(), so.columnIndex(), so.isTableCell()))
-        );
+        // Each duplicate lands right after the source, so the last copy has to be created first
+        Collections.reverse(duplicateRequests);
+        requests.addAll(duplicateRequests);
+        return copies;
+    }
 
-        Map<String, String> dupIdMapping = new HashMap<>();
-        dupObjectMapping.forEach((k, v) -> dupIdMapping.put(k.id(), v.id()));
+    // ------------------------- TEMPLATE METHODS ----------------------------
 
-        DuplicateObjectRequest duplicateRequest = new DuplicateObjectRequest()
-                .setObjectId(slideId)
-                .setObjectIds(dupIdMapping);
-        Request request = new Request().setDuplicateObject(duplicateRequest);
-        requests.add(request);
-        return dupObjectMapping;
+    /**
+     * Fills placeholder tokens across the whole presentation, see {@link #replacePlaceholders(Map, List)}.
+     */
+    public synchronized int replacePlaceholders(Map<String, String> values) {
+        return replacePlaceholders(values, null);
+    }
+
+    /**
+     * Replaces every occurrence of each placeholder token (e.g. "{{TITLE}}") with its value using one ReplaceAllTextRequest
+     * per token, optionally limited to the given page IDs, instead of a delete and insert per text element.
+     * Tokens the text index does not find on the targeted pages are skipped (if text was loaded). Returns the number of requests added.
+     */
+    public synchronized int replacePlaceholders(Map<String, String> values, List<String> pageIds) {
+        validatePresentationContext();
+        int added = 0;
+        for (Map.Entry<String, String> entry : values.entrySet()) {
+            String token = entry.getKey();
+            if (!presentation.isStale() && presentation.getProjection().includesText()
+                    && presentation.getTextIndex().findOccurrences(token, pageIds).isEmpty()) {
+                log.info("Placeholder {} not found in presentation {}; skipping.", token, presentation.getPresentationId());
+                continue;
+            }
+
+            ReplaceAllTextRequest replaceRequest = new ReplaceAllTextRequest()
+                    .setContainsText(new SubstringMatchCriteria().setText(token).setMatchCase(true))
+                    .setReplaceText(Objects.requireNonNullElse(entry.getValue(), ""));
+            if (pageIds != null) {
+                replaceRequest.setPageObjectIds(pageIds);
+            }
+            requests.add(new Request().setReplaceAllText(replaceRequest));
+            added++;
+        }
+        return added;
     }
 
     // --------------------------- DELETION METHODS --------------------------
 
-    public void deleteSlide(String slideId) {
+    public synchronized void deleteSlide(String slideId) {
         Request deleteRequest = new Request().setDeleteObject(
             new com.google.api.services.slides.v1.model.DeleteObjectRequest().setObjectId(slideId));
         requests.add(deleteRequest);
@@ -152,67 +406,55 @@ public class GoogleSlides {
 
     // ---------------------------- GETTER METHODS ---------------------------
 
-    public String getSlideId(int slideIndex) {
+    public synchronized String getPresentationId() {
+        validatePresentationContext();
+        return presentation.getPresentationId();
+    }
+
+    public synchronized String getSlideId(int slideIndex) {
         validatePresentationContext();
         validateSlideIndex(slideIndex);
         return presentation.getSlides().get(slideIndex).getObjectId();
     }
 
-    public int getSlideCount() {
+    public synchronized int getSlideCount() {
         validatePresentationContext();
         return presentation.getSlides().size();
     }
 
     /**
-     * Extracts non-empty text content from textbox and table elements in the specified slide 
-     * and returns a mapping from element IDs to their text content.
-     * 
-     * PageElement can only assume one type at a time
-     * https://developers.google.com/workspace/slides/api/concepts/page-elements#page_elements
+     * Returns the non-empty text content of textbox and table elements in the specified slide 
+     * as a mapping from element IDs to their text content, served from the presentation's text index.
      */
-    public Map<SlideObject, String> getTextElementsInSlide(int slideIndex) {
+    public synchronized Map<SlideObject, String> getTextElementsInSlide(int slideIndex) {
         validatePresentationContext();
-        Page slide = presentation.getSlides().get(slideIndex);
-        Map<SlideObject, String> textElements = new HashMap<>();
-        if (slide.getPageElements() == null) return textElements;
-
-        for (PageElement element : slide.getPageElements()) {
-            String objectId = element.getObjectId();
+        validateSlideIndex(slideIndex);
+        presentation.requireText("getTextElementsInSlide");
+        return new HashMap<>(presentation.getTextIndex().getTextElements(getSlideId(slideIndex)));
+    }
 
-            if (element.getShape() != null && element.getShape().getText() != null) {
-                String textContent = element.getShape().getText().getTextElements().stream()
-                        .filter(te -> te.getTextRun() != null)
-                        .map(te -> te.getTextRun().getContent())
-                        .reduce("", String::concat);
+    /**
+     * Returns every text box and table cell across the presentation that contains the given placeholder token, e.g. "{{VERSE}}".
+     */
+    public synchronized List<PlaceholderLocation> findPlaceholder(String token) {
+        validatePresentationContext();
+        presentation.requireText("findPlaceholder");
+        return presentation.getTextIndex().findPlaceholder(token);
+    }
 
-                if (!textContent.isEmpty()) {
-                    textElements.put(new SlideObject(objectId), textContent);
-                }
-            } else if (element.getTable() != null) {
-                Table table = element.getTable();
-                for (int r = 0; r < table.getTableRows().size(); r++) {
-                    TableRow row = table.getTableRows().get(r);
-                    for (int c = 0; c < row.getTableCells().size(); c++) {
-                        TableCell cell = row.getTableCells().get(c);
-                        if (cell.getText() != null) {
-                            String textContent = cell.getText().getTextElements().stream()
-                                    .filter(te -> te.getTextRun() != null)
-                                    .map(te -> te.getTextRun().getContent())
-                                    .reduce("", String::concat);
-                                    
-                            if (!textContent.isEmpty()) {
-                                textElements.put(new SlideObject(objectId, r, c), textContent);
-                            }
-                        }
-                    }
-                }
-            }
-        }
-        return textElements;
+    /**
+     * Returns all distinct placeholder tokens (text of the form {{NAME}}) found in the presentation.
+     */
+    public synchronized Set<String> getPlaceholderTokens() {
+        validatePresentationContext();
+        presentation.requireText("getPlaceholderTokens");
+        return presentation.getTextIndex().getPlaceholderTokens();
     }
 
-    public List<SlideObject> getTablesInSlide(int slideIndex) {
+    public synchronized List<SlideObject> getTablesInSlide(int slideIndex) {
         validatePresentationContext();
+        validateSlideIndex(slideIndex);
+        presentation.requireTables("getTablesInSlide");
         Page slide = presentation.getSlides().get(slideIndex);
         List<SlideObject> tableObjects = new ArrayList<>();
         if (slide.getPageElements() == null) return tableObjects;
@@ -227,7 +469,7 @@ public class GoogleSlides {
 
     // ---------------------------- SETTER METHODS ---------------------------
 
-    public void setText(SlideObject slideObject, String newText) {
+    public synchronized void setText(SlideObject slideObject, String newText) {
         newText = Objects.requireNonNullElse(newText, "");
 
         DeleteTextRequest deleteRequest = new DeleteTextRequest()
@@ -250,7 +492,7 @@ public class GoogleSlides {
         requests.add(new Request().setInsertText(insertRequest));
     }
 
-    public void setTextColor(SlideObject slideObject, String colorHex) {
+    public synchronized void setTextColor(SlideObject slideObject, String colorHex) {
         float r = Integer.parseInt(colorHex.substring(1, 3), 16) / 255.0f;
         float g = Integer.parseInt(colorHex.substring(3, 5), 16) / 255.0f;
         float b = Integer.parseInt(colorHex.substring(5, 7), 16) / 255.0f;
@@ -277,7 +519,7 @@ public class GoogleSlides {
         requests.add(new Request().setUpdateTextStyle(textStyleRequest));
     }
 
-    public void setStyle(
+    public synchronized void setStyle(
         SlideObject slideObject, 
         int startIndex, 
         int endIndex, 
@@ -328,7 +570,7 @@ public class GoogleSlides {
         requests.add(new Request().setUpdateTextStyle(textStyleRequest));
     }
 
-    public void setParagraphStyle(SlideObject slideObject, float lineSpacing, ParagraphAlignment alignment) {
+    public synchronized void setParagraphStyle(SlideObject slideObject, float lineSpacing, ParagraphAlignment alignment) {
         ParagraphStyle paragraphStyle = new ParagraphStyle();
         paragraphStyle.setLineSpacing(lineSpacing);
         paragraphStyle.setAlignment(alignment.getAlignment());
@@ -349,7 +591,7 @@ public class GoogleSlides {
         requests.add(new Request().setUpdateParagraphStyle(paragraphStyleRequest));
     }
 
-    public void setSpaceAbove(SlideObject slideObject, int paragraphIndex, double spaceAbove) {
+    public synchronized void setSpaceAbove(SlideObject slideObject, int paragraphIndex, double spaceAbove) {
         ParagraphStyle paragraphStyle = new ParagraphStyle();
         paragraphStyle.setSpaceAbove(new Dimension().setMagnitude(spaceAbove).setUnit(FONT_DIMENSION_UNIT));
 
@@ -0,0 +1,46 @@
+package org.fcnabc.autoppt.google;
+
+import java.io.IOException;
+import lombok.extern.slf4j.Slf4j;
+
+import com.google.api.services.slides.v1.Slides;
+import com.google.inject.Inject;
+import com.google.inject.Singleton;
+
+import org.fcnabc.autoppt.google.models.PresentationProjection;
+
+/**
+ * Opens GoogleSlides editing sessions. Every session has its own request buffer and ID allocator, so several
+ * presentations can be edited in parallel threads, while all sessions share one Slides client, HTTP transport and rate limiter.
+ */
+@Slf4j
+@Singleton
+public class GoogleSlidesFactory {
+    private final Slides service;
+    private final PresentationSnapshotCache snapshotCache;
+    private final GoogleApiRateLimiter rateLimiter;
+
+    @Inject
+    public GoogleSlidesFactory(Slides service, PresentationSnapshotCache snapshotCache, GoogleApiRateLimiter rateLimiter) {
+        log.info("Initializing Google Slides service...");
+        this.service = service;
+        this.snapshotCache = snapshotCache;
+        this.rateLimiter = rateLimiter;
+    }
+
+    /**
+     * Opens a new session with its presentation context already set to the given presentation.
+     */
+    public GoogleSlides open(String presentationId) throws IOException {
+        return open(presentationId, PresentationProjection.FULL);
+    }
+
+    /**
+     * Opens a new session that loads only the fields of the given projection profile.
+     */
+    public GoogleSlides open(String presentationId, PresentationProjection projection) throws IOException {
+        GoogleSlides session = new GoogleSlides(service, snapshotCache, rateLimiter);
+        session.setPresentationContext(presentationId, projection);
+        return session;
+    }
+}
@@ -0,0 +1,173 @@
+package org.fcnabc.autoppt.google;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpRequest.BodyPublishers;
+import java.net.http.HttpResponse;
+import java.net.http.HttpResponse.BodyHandlers;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import com.google.api.client.http.HttpTransport;
+import com.google.api.client.http.LowLevelHttpRequest;
+import com.google.api.client.http.LowLevelHttpResponse;
+
+/**
+ * An HttpTransport backed by java.net.http.HttpClient. Unlike the HttpURLConnection based NetHttpTransport, one client
+ * keeps a pool of connections for all requests and multiplexes concurrent requests to the same host over HTTP/2,
+ * falling back to HTTP/1.1 where the server does not negotiate it.
+ * Request bodies are buffered in memory before sending. Responses are streamed as received: java.net.http never decodes
+ * Content-Encoding, so a gzip body is passed through with its header and decoded by google-http-client's HttpResponse.
+ */
+class JdkHttpTransport extends HttpTransport {
+    // Headers HttpClient manages itself and refuses to have set explicitly
+    private static final Set<String> RESTRICTED_HEADERS = Set.of("connection", "content-length", "expect", "host", "upgrade");
+
+    private final HttpClient client;
+
+    JdkHttpTransport(HttpClient client) {
+        this.client = client;
+    }
+
+    @Override
+    protected LowLevelHttpRequest buildRequest(String method, String url) {
+        return new JdkHttpRequest(method, url);
+    }
+
+    @Override
+    public void shutdown() {
+        client.close();
+    }
+
+    private class JdkHttpRequest extends LowLevelHttpRequest {
+        private final String method;
+        private final String url;
+        private final List<String[]> headers = new ArrayList<>();
+        private int readTimeoutMillis = 0;
+
+        JdkHttpRequest(String method, String url) {
+            this.method = method;
+            this.url = url;
+        }
+
+        @Override
+        public void addHeader(String name, String value) {
+            headers.add(new String[] {name, value});
+        }
+
+        @Override
+        public void setTimeout(int connectTimeout, int readTimeout) {
+            // The connect timeout is configured on the shared client
+            this.readTimeoutMillis = readTimeout;
+        }
+
+        @Override
+        public LowLevelHttpResponse execute() throws IOException {
+            HttpRequest.Builder builder = HttpRequest.newBuilder(URI.create(url));
+            for (String[] header : headers) {
+                if (!RESTRICTED_HEADERS.contains(header[0].toLowerCase())) {
+                    builder.header(header[0], header[1]);
+                }
+            }
+            if (getContentType() != null) builder.setHeader("Content-Type", getContentType());
+            if (getContentEncoding() != null) builder.setHeader("Content-Encoding", getContentEncoding());
+            if (readTimeoutMillis > 0) builder.timeout(Duration.ofMillis(readTimeoutMillis));
+
+            if (getStreamingContent() == null) {
+                builder.method(method, BodyPublishers.noBody());
+            } else {
+                ByteArrayOutputStream body = new ByteArrayOutputStream();
+                getStreamingContent().writeTo(body);
+                builder.method(method, BodyPublishers.ofByteArray(body.toByteArray()));
+            }
+
+            try {
+                return new JdkHttpResponse(client.send(builder.build(), BodyHandlers.ofInputStream()));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Interrupted during " + method + " " + url);
+            }
+        }
+    }
+
+    private static class JdkHttpResponse extends LowLevelHttpResponse {
+        private final HttpResponse<InputStream> response;
+        private final List<String> headerNames = new ArrayList<>();
+        private final List<String> headerValues = new ArrayList<>();
+
+        JdkHttpResponse(HttpResponse<InputStream> response) {
+            this.response = response;
+            for (Map.Entry<String, List<String>> header : response.headers().map().entrySet()) {
+                for (String value : header.getValue()) {
+                    headerNames.add(header.getKey());
+                    headerValues.add(value);
+                }
+            }
+        }
+
+        @Override
+        public InputStream getContent() {
+            return response.body();
+        }
+
+        @Override
+        public String getContentEncoding() {
+            return response.headers().firstValue("Content-Encoding").orElse(null);
+        }
+
+        @Override
+        public long getContentLength() {
+            return response.headers().firstValueAsLong("Content-Length").orElse(-1);
+        }
+
+        @Override
+        public String getContentType() {
+            return response.headers().firstValue("Content-Type").orElse(null);
+        }
+
+        @Override
+        public String getStatusLine() {
+            String version = response.version() == HttpClient.Version.HTTP_2 ? "HTTP/2" : "HTTP/1.1";
+            return version + " " + response.statusCode();
+        }
+
+        @Override
+        public int getStatusCode() {
+            return response.statusCode();
+        }
+
+        @Override
+        public String getReasonPhrase() {
+            // HTTP/2 has no reason phrase
+            return null;
+        }
+
+        @Override
+        public int getHeaderCount() {
+            return headerNames.size();
+        }
+
+        @Override
+        public String getHeaderName(int index) {
+            return headerNames.get(index);
+        }
+
+        @Override
+        public String getHeaderValue(int index) {
+            return headerValues.get(index);
+        }
+
+        @Override
+        public void disconnect() throws IOException {
+            response.body().close();
+        }
+    }
+}
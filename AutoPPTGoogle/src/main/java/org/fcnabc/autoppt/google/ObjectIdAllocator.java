@@ -0,0 +1,44 @@
+package org.fcnabc.autoppt.google;
+
+import java.security.SecureRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Mints fixed-length object IDs for objects created through the Slides API, e.g. "p4k9x2m_0000001a".
+ * IDs are a random per-session prefix followed by a zero-padded base-36 counter, so they never grow when a copy is copied
+ * again, stay far below the 50 character limit, and do not collide with IDs minted by other sessions on the same deck.
+ * Slides object IDs must start with an alphanumeric character or underscore and be 5 to 50 characters long.
+ */
+class ObjectIdAllocator {
+    private static final String ALPHABET = "0123456789abcdefghijklmnopqrstuvwxyz";
+    private static final int PREFIX_LENGTH = 6;
+    private static final int COUNTER_WIDTH = 8;
+    private static final SecureRandom RANDOM = new SecureRandom();
+
+    private final String prefix;
+    private final AtomicLong counter = new AtomicLong();
+
+    ObjectIdAllocator() {
+        this(randomPrefix());
+    }
+
+    ObjectIdAllocator(String prefix) {
+        this.prefix = prefix;
+    }
+
+    String next() {
+        String count = Long.toString(counter.getAndIncrement(), 36);
+        if (count.length() > COUNTER_WIDTH) {
+            throw new IllegalStateException("Object ID counter exhausted for prefix " + prefix);
+        }
+        return prefix + "_" + "0".repeat(COUNTER_WIDTH - count.length()) + count;
+    }
+
+    private static String randomPrefix() {
+        StringBuilder sb = new StringBuilder("p");
+        for (int i = 0; i < PREFIX_LENGTH; i++) {
+            sb.append(ALPHABET.charAt(RANDOM.nextInt(ALPHABET.length())));
+        }
+        return sb.toString();
+    }
+}
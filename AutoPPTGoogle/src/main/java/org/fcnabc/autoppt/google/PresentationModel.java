@@ -0,0 +1,384 @@
+package org.fcnabc.autoppt.google;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Consumer;
+import lombok.extern.slf4j.Slf4j;
+
+import com.google.api.services.slides.v1.model.DeleteTextRequest;
+import com.google.api.services.slides.v1.model.DuplicateObjectRequest;
+import com.google.api.services.slides.v1.model.InsertTextRequest;
+import com.google.api.services.slides.v1.model.Page;
+import com.google.api.services.slides.v1.model.PageElement;
+import com.google.api.services.slides.v1.model.Presentation;
+import com.google.api.services.slides.v1.model.Range;
+import com.google.api.services.slides.v1.model.ReplaceAllTextRequest;
+import com.google.api.services.slides.v1.model.Request;
+import com.google.api.services.slides.v1.model.SubstringMatchCriteria;
+import com.google.api.services.slides.v1.model.Table;
+import com.google.api.services.slides.v1.model.TableCell;
+import com.google.api.services.slides.v1.model.TableCellLocation;
+import com.google.api.services.slides.v1.model.TableRow;
+import com.google.api.services.slides.v1.model.TextContent;
+import com.google.api.services.slides.v1.model.TextElement;
+import com.google.api.services.slides.v1.model.TextRun;
+
+import org.fcnabc.autoppt.google.models.PlaceholderLocation;
+import org.fcnabc.autoppt.google.models.PresentationProjection;
+import org.fcnabc.autoppt.google.models.SlideObject;
+
+/**
+ * A local, mutable copy of a loaded Presentation that mirrors the structural and text edits sent in a batch update,
+ * so the presentation does not have to be downloaded again after every executeUpdates() call.
+ * Style-only requests do not change anything the getters read and are ignored. Any request the model cannot mirror
+ * marks it stale, which tells the caller a full refresh is required. The text index is kept in sync slide by slide.
+ */
+@Slf4j
+class PresentationModel {
+    private final Presentation presentation;
+    private final PresentationProjection projection;
+    private final PresentationTextIndex textIndex;
+    private boolean stale = false;
+
+    PresentationModel(Presentation presentation) {
+        this(presentation, PresentationProjection.FULL);
+    }
+
+    PresentationModel(Presentation presentation, PresentationProjection projection) {
+        this.presentation = presentation;
+        this.projection = projection;
+        if (this.presentation.getSlides() == null) {
+            this.presentation.setSlides(new ArrayList<>());
+        }
+        this.textIndex = new PresentationTextIndex(this.presentation.getSlides());
+    }
+
+    String getPresentationId() {
+        return presentation.getPresentationId();
+    }
+
+    String getRevisionId() {
+        return presentation.getRevisionId();
+    }
+
+    void setRevisionId(String revisionId) {
+        presentation.setRevisionId(revisionId);
+    }
+
+    List<Page> getSlides() {
+        return presentation.getSlides();
+    }
+
+    PresentationProjection getProjection() {
+        return projection;
+    }
+
+    PresentationTextIndex getTextIndex() {
+        return textIndex;
+    }
+
+    /**
+     * Throws if the presentation was loaded with a projection that does not include text content.
+     */
+    void requireText(String operation) {
+        if (!projection.includesText()) {
+            throw missingField(operation, "text content");
+        }
+    }
+
+    /**
+     * Throws if the presentation was loaded with a projection that does not include tables.
+     */
+    void requireTables(String operation) {
+        if (!projection.includesTables()) {
+            throw missingField(operation, "tables");
+        }
+    }
+
+    private IllegalStateException missingField(String operation, String field) {
+        return new IllegalStateException(String.format(
+                "%s requires %s, but presentation %s was loaded with the %s projection. Load it with a projection that includes %s.",
+                operation, field, getPresentationId(), projection, field));
+    }
+
+    /**
+     * Returns a mapping from every slide and page element ID to the ID of the slide that contains it.
+     */
+    Map<String, String> getPageIds() {
+        Map<String, String> pageIds = new HashMap<>();
+        for (Page slide : presentation.getSlides()) {
+            pageIds.put(slide.getObjectId(), slide.getObjectId());
+            forEachElement(slide.getPageElements(), element -> pageIds.put(element.getObjectId(), slide.getObjectId()));
+        }
+        return pageIds;
+    }
+
+    boolean isStale() {
+        return stale;
+    }
+
+    void markStale() {
+        stale = true;
+    }
+
+    // ------------------------------------------------------------------------
+
+    void apply(List<Request> requests) {
+        requests.forEach(this::apply);
+    }
+
+    void apply(Request request) {
+        if (request.getDuplicateObject() != null) {
+            applyDuplicate(request.getDuplicateObject());
+        } else if (request.getDeleteObject() != null) {
+            applyDelete(request.getDeleteObject().getObjectId());
+        } else if (request.getDeleteText() != null) {
+            applyDeleteText(request.getDeleteText());
+        } else if (request.getInsertText() != null) {
+            applyInsertText(request.getInsertText());
+        } else if (request.getReplaceAllText() != null) {
+            applyReplaceAllText(request.getReplaceAllText());
+        } else if (request.getUpdateTextStyle() == null && request.getUpdateParagraphStyle() == null) {
+            log.warn("Local presentation model cannot mirror request {}; a full refresh is required.", request.keySet());
+            stale = true;
+        }
+    }
+
+    private void applyDuplicate(DuplicateObjectRequest duplicate) {
+        Map<String, String> idMapping = duplicate.getObjectIds() == null ? Map.of() : duplicate.getObjectIds();
+        List<Page> slides = presentation.getSlides();
+
+        for (int i = 0; i < slides.size(); i++) {
+            if (slides.get(i).getObjectId().equals(duplicate.getObjectId())) {
+                Page copy = slides.get(i).clone();
+                copy.setObjectId(mapId(idMapping, copy.getObjectId()));
+                forEachElement(copy.getPageElements(), element -> element.setObjectId(mapId(idMapping, element.getObjectId())));
+                slides.add(i + 1, copy);
+                textIndex.indexSlide(copy);
+                return;
+            }
+        }
+
+        for (Page slide : slides) {
+            List<PageElement> elements = findContainingList(slide.getPageElements(), duplicate.getObjectId());
+            if (elements != null) {
+                PageElement original = findElement(elements, duplicate.getObjectId());
+                PageElement copy = original.clone();
+                copy.setObjectId(mapId(idMapping, copy.getObjectId()));
+                forEachElement(childrenOf(copy), element -> element.setObjectId(mapId(idMapping, element.getObjectId())));
+                elements.add(elements.indexOf(original) + 1, copy);
+                textIndex.indexSlide(slide);
+                return;
+            }
+        }
+        log.warn("Duplicated object {} not found in local presentation model.", duplicate.getObjectId());
+        stale = true;
+    }
+
+    private String mapId(Map<String, String> idMapping, String objectId) {
+        String mapped = idMapping.get(objectId);
+        if (mapped == null) {
+            // The server assigns a random ID we cannot predict
+            stale = true;
+            return objectId;
+        }
+        return mapped;
+    }
+
+    private void applyDelete(String objectId) {
+        if (presentation.getSlides().removeIf(slide -> slide.getObjectId().equals(objectId))) {
+            textIndex.removeSlide(objectId);
+            return;
+        }
+
+        for (Page slide : presentation.getSlides()) {
+            List<PageElement> elements = findContainingList(slide.getPageElements(), objectId);
+            if (elements != null) {
+                elements.removeIf(element -> element.getObjectId().equals(objectId));
+                textIndex.indexSlide(slide);
+                return;
+            }
+        }
+        log.warn("Deleted object {} not found in local presentation model.", objectId);
+        stale = true;
+    }
+
+    private void applyDeleteText(DeleteTextRequest deleteText) {
+        TextLocation location = findText(deleteText.getObjectId(), deleteText.getCellLocation());
+        if (location == null) {
+            log.warn("DeleteText target {} not found in local presentation model.", deleteText.getObjectId());
+            stale = true;
+            return;
+        }
+        TextContent text = location.text();
+
+        String content = concatenate(text);
+        // The server never deletes the newline that ends a text body
+        int limit = content.endsWith("\n") ? content.length() - 1 : content.length();
+        Range range = deleteText.getTextRange();
+        int start = 0;
+        int end = limit;
+        if (range != null && !"ALL".equals(range.getType())) {
+            start = range.getStartIndex() == null ? 0 : Math.min(range.getStartIndex(), limit);
+            end = "FIXED_RANGE".equals(range.getType()) && range.getEndIndex() != null
+                    ? Math.min(range.getEndIndex(), limit)
+                    : limit;
+        }
+        setContent(text, content.substring(0, start) + content.substring(Math.max(start, end)));
+        textIndex.indexSlide(location.slide());
+    }
+
+    private void applyInsertText(InsertTextRequest insertText) {
+        TextLocation location = findText(insertText.getObjectId(), insertText.getCellLocation());
+        if (location == null) {
+            log.warn("InsertText target {} not found in local presentation model.", insertText.getObjectId());
+            stale = true;
+            return;
+        }
+        TextContent text = location.text();
+
+        String content = concatenate(text);
+        int index = insertText.getInsertionIndex() == null ? 0 : Math.min(insertText.getInsertionIndex(), content.length());
+        setContent(text, content.substring(0, index) + insertText.getText() + content.substring(index));
+        textIndex.indexSlide(location.slide());
+    }
+
+    private void applyReplaceAllText(ReplaceAllTextRequest replaceAllText) {
+        SubstringMatchCriteria criteria = replaceAllText.getContainsText();
+        if (criteria == null || criteria.getText() == null || criteria.getText().isEmpty()) return;
+        if (!Boolean.TRUE.equals(criteria.getMatchCase())) {
+            log.warn("Local presentation model cannot mirror case-insensitive ReplaceAllText; a full refresh is required.");
+            stale = true;
+            return;
+        }
+
+        String replacement = replaceAllText.getReplaceText() == null ? "" : replaceAllText.getReplaceText();
+        Set<Page> changedSlides = Collections.newSetFromMap(new IdentityHashMap<>());
+        for (PlaceholderLocation occurrence : textIndex.findOccurrences(criteria.getText(), replaceAllText.getPageObjectIds())) {
+            SlideObject target = occurrence.slideObject();
+            TableCellLocation cellLocation = target.isTableCell()
+                    ? new TableCellLocation().setRowIndex(target.rowIndex()).setColumnIndex(target.columnIndex())
+                    : null;
+            TextLocation location = findText(target.id(), cellLocation);
+            if (location == null) continue;
+
+            setContent(location.text(), concatenate(location.text()).replace(criteria.getText(), replacement));
+            changedSlides.add(location.slide());
+        }
+        changedSlides.forEach(textIndex::indexSlide);
+    }
+
+    // ------------------------------------------------------------------------
+
+    private record TextLocation(Page slide, TextContent text) {}
+
+    /**
+     * Returns the text of a shape or table cell and the slide it is on, creating an empty text body if the target exists
+     * but has none. Returns null if the target is not in the model, such as an element the projection left out or a
+     * table cell the model does not hold.
+     */
+    private TextLocation findText(String objectId, TableCellLocation cellLocation) {
+        for (Page slide : presentation.getSlides()) {
+            List<PageElement> elements = findContainingList(slide.getPageElements(), objectId);
+            if (elements == null) continue;
+
+            PageElement element = findElement(elements, objectId);
+            if (cellLocation != null && element.getTable() != null) {
+                TableCell cell = findCell(element.getTable(), cellLocation);
+                if (cell == null) return null;
+                if (cell.getText() == null) cell.setText(new TextContent());
+                return new TextLocation(slide, cell.getText());
+            }
+            if (element.getShape() != null) {
+                if (element.getShape().getText() == null) element.getShape().setText(new TextContent());
+                return new TextLocation(slide, element.getShape().getText());
+            }
+            return null;
+        }
+        return null;
+    }
+
+    private static TableCell findCell(Table table, TableCellLocation cellLocation) {
+        int rowIndex = cellLocation.getRowIndex() == null ? 0 : cellLocation.getRowIndex();
+        int columnIndex = cellLocation.getColumnIndex() == null ? 0 : cellLocation.getColumnIndex();
+        List<TableRow> rows = table.getTableRows();
+        if (rows == null || rowIndex < 0 || rowIndex >= rows.size()) return null;
+        List<TableCell> cells = rows.get(rowIndex).getTableCells();
+        if (cells == null || columnIndex < 0 || columnIndex >= cells.size()) return null;
+        return cells.get(columnIndex);
+    }
+
+    /**
+     * Returns the object IDs of every page element on the slide, including elements nested in groups.
+     */
+    static List<String> collectElementIds(Page slide) {
+        List<String> objectIds = new ArrayList<>();
+        forEachElement(slide.getPageElements(), element -> objectIds.add(element.getObjectId()));
+        return objectIds;
+    }
+
+    static String concatenate(TextContent text) {
+        if (text.getTextElements() == null) return "";
+
+        StringBuilder sb = new StringBuilder();
+        for (TextElement textElement : text.getTextElements()) {
+            if (textElement.getTextRun() != null && textElement.getTextRun().getContent() != null) {
+                sb.append(textElement.getTextRun().getContent());
+            }
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Collapses the text into a single run; the style of the first run is kept since the getters only read content.
+     */
+    private static void setContent(TextContent text, String content) {
+        TextRun run = new TextRun().setContent(content);
+        if (text.getTextElements() != null) {
+            text.getTextElements().stream()
+                    .filter(te -> te.getTextRun() != null && te.getTextRun().getStyle() != null)
+                    .findFirst()
+                    .ifPresent(te -> run.setStyle(te.getTextRun().getStyle()));
+        }
+
+        List<TextElement> textElements = new ArrayList<>();
+        if (!content.isEmpty()) {
+            textElements.add(new TextElement().setStartIndex(0).setEndIndex(content.length()).setTextRun(run));
+        }
+        text.setTextElements(textElements);
+    }
+
+    private static List<PageElement> childrenOf(PageElement element) {
+        return element.getElementGroup() == null ? null : element.getElementGroup().getChildren();
+    }
+
+    private static void forEachElement(List<PageElement> elements, Consumer<PageElement> action) {
+        if (elements == null) return;
+        for (PageElement element : elements) {
+            action.accept(element);
+            forEachElement(childrenOf(element), action);
+        }
+    }
+
+    private static PageElement findElement(List<PageElement> elements, String objectId) {
+        return elements.stream().filter(element -> objectId.equals(element.getObjectId())).findFirst().orElse(null);
+    }
+
+    /**
+     * Returns the list (a page's elements or a group's children) that directly contains the given element, or null.
+     */
+    private static List<PageElement> findContainingList(List<PageElement> elements, String objectId) {
+        if (elements == null) return null;
+        for (PageElement element : elements) {
+            if (objectId.equals(element.getObjectId())) return elements;
+            List<PageElement> nested = findContainingList(childrenOf(element), objectId);
+            if (nested != null) return nested;
+        }
+        return null;
+    }
+}
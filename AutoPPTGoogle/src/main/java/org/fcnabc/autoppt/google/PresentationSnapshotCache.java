@@ -0,0 +1,97 @@
+package org.fcnabc.autoppt.google;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Objects;
+import java.util.Optional;
+import lombok.extern.slf4j.Slf4j;
+
+import com.google.api.client.json.JsonFactory;
+import com.google.api.client.json.gson.GsonFactory;
+import com.google.api.services.slides.v1.model.Presentation;
+import com.google.inject.Inject;
+import com.google.inject.Singleton;
+import com.google.inject.name.Named;
+
+import org.fcnabc.autoppt.google.models.PresentationProjection;
+
+/**
+ * Persists downloaded presentations in the app directory, keyed by presentation ID, projection and revision ID.
+ * A snapshot is only returned if its revision matches the one the caller just probed, so a template that has not been
+ * edited since the last run is loaded from disk instead of being downloaded again.
+ */
+@Slf4j
+@Singleton
+public class PresentationSnapshotCache {
+    private static final JsonFactory JSON_FACTORY = GsonFactory.getDefaultInstance();
+    private static final String CACHE_FOLDER = "presentationCache";
+    private static final String SNAPSHOT_EXTENSION = ".json";
+
+    private final Path cacheDirectory;
+
+    @Inject
+    public PresentationSnapshotCache(@Named("AppDirectory") Path appDirectory) {
+        this.cacheDirectory = appDirectory.resolve(CACHE_FOLDER);
+    }
+
+    /**
+     * Returns the cached presentation if a snapshot exists for the given revision. Unreadable snapshots are treated as misses.
+     */
+    public Optional<Presentation> load(String presentationId, String revisionId, PresentationProjection projection) {
+        if (revisionId == null) return Optional.empty();
+
+        Path snapshotPath = snapshotPath(presentationId, projection);
+        if (!Files.exists(snapshotPath)) return Optional.empty();
+
+        try {
+            Presentation snapshot = JSON_FACTORY.fromString(Files.readString(snapshotPath), Presentation.class);
+            if (!revisionId.equals(snapshot.getRevisionId())) {
+                log.info("Presentation snapshot for {} is outdated ({} != {})", presentationId, snapshot.getRevisionId(), revisionId);
+                return Optional.empty();
+            }
+            log.info("Loaded presentation {} at revision {} ({}) from snapshot cache", presentationId, revisionId, projection);
+            return Optional.of(snapshot);
+        } catch (IOException | IllegalArgumentException e) {
+            log.warn("Failed to read presentation snapshot: {}", snapshotPath, e);
+            return Optional.empty();
+        }
+    }
+
+    /**
+     * Stores a freshly downloaded presentation under the projection it was loaded with. Presentations without a revision ID cannot be validated later and are skipped.
+     * Failures are logged rather than thrown since the cache is only an optimization.
+     */
+    public void save(Presentation presentation, PresentationProjection projection) {
+        if (presentation.getRevisionId() == null) return;
+
+        Path snapshotPath = snapshotPath(presentation.getPresentationId(), projection);
+        try {
+            Files.createDirectories(cacheDirectory);
+            Path tempPath = Files.createTempFile(cacheDirectory, presentation.getPresentationId(), ".tmp");
+            Files.writeString(tempPath, JSON_FACTORY.toString(presentation));
+            Files.move(tempPath, snapshotPath, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            log.warn("Failed to write presentation snapshot: {}", snapshotPath, e);
+        }
+    }
+
+    /**
+     * Removes the snapshots of every projection of the presentation.
+     */
+    public void invalidate(String presentationId) {
+        for (PresentationProjection projection : PresentationProjection.values()) {
+            try {
+                Files.deleteIfExists(snapshotPath(presentationId, projection));
+            } catch (IOException e) {
+                log.warn("Failed to delete {} presentation snapshot for {}", projection, presentationId, e);
+            }
+        }
+    }
+
+    private Path snapshotPath(String presentationId, PresentationProjection projection) {
+        Objects.requireNonNull(presentationId, "presentationId");
+        return cacheDirectory.resolve(presentationId + "." + projection.name().toLowerCase() + SNAPSHOT_EXTENSION);
+    }
+}
@@ -0,0 +1,134 @@
+package org.fcnabc.autoppt.google;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import com.google.api.services.slides.v1.model.Page;
+import com.google.api.services.slides.v1.model.PageElement;
+import com.google.api.services.slides.v1.model.Table;
+import com.google.api.services.slides.v1.model.TableCell;
+import com.google.api.services.slides.v1.model.TableRow;
+
+import org.fcnabc.autoppt.google.models.PlaceholderLocation;
+import org.fcnabc.autoppt.google.models.SlideObject;
+
+/**
+ * Text of every text box and table cell in a presentation, indexed by slide, plus the locations of all placeholder
+ * tokens such as {{VERSE}}. Built once when a presentation is loaded and updated slide by slide as edits are mirrored,
+ * so lookups never walk the page element tree.
+ */
+class PresentationTextIndex {
+    static final Pattern PLACEHOLDER_PATTERN = Pattern.compile("\\{\\{[^{}\\s]+\\}\\}");
+
+    private final Map<String, Map<SlideObject, String>> textBySlide = new HashMap<>();
+    private final Map<String, Set<PlaceholderLocation>> placeholders = new HashMap<>();
+
+    PresentationTextIndex(List<Page> slides) {
+        slides.forEach(this::indexSlide);
+    }
+
+    /**
+     * Returns the non-empty text elements of the slide in page element order, or an empty map for an unknown slide.
+     */
+    Map<SlideObject, String> getTextElements(String slideId) {
+        return textBySlide.getOrDefault(slideId, Map.of());
+    }
+
+    List<PlaceholderLocation> findPlaceholder(String token) {
+        return List.copyOf(placeholders.getOrDefault(token, Set.of()));
+    }
+
+    Set<String> getPlaceholderTokens() {
+        return Set.copyOf(placeholders.keySet());
+    }
+
+    /**
+     * Returns every indexed text box and table cell whose text contains the given string (case-sensitive),
+     * optionally limited to the given slides. Only the indexed strings are scanned, not the page element tree.
+     */
+    List<PlaceholderLocation> findOccurrences(String text, Collection<String> slideIds) {
+        List<PlaceholderLocation> occurrences = new ArrayList<>();
+        Collection<String> candidates = slideIds == null ? textBySlide.keySet() : slideIds;
+        for (String slideId : candidates) {
+            getTextElements(slideId).forEach((slideObject, content) -> {
+                if (content.contains(text)) occurrences.add(new PlaceholderLocation(slideId, slideObject));
+            });
+        }
+        return occurrences;
+    }
+
+    // ------------------------------------------------------------------------
+
+    /**
+     * (Re)indexes a slide, replacing anything previously indexed for it.
+     * PageElement can only assume one type at a time
+     * https://developers.google.com/workspace/slides/api/concepts/page-elements#page_elements
+     */
+    void indexSlide(Page slide) {
+        removeSlide(slide.getObjectId());
+
+        Map<SlideObject, String> textElements = new LinkedHashMap<>();
+        if (slide.getPageElements() != null) {
+            for (PageElement element : slide.getPageElements()) {
+                String objectId = element.getObjectId();
+
+                if (element.getShape() != null && element.getShape().getText() != null) {
+                    String textContent = PresentationModel.concatenate(element.getShape().getText());
+                    if (!textContent.isEmpty()) {
+                        textElements.put(new SlideObject(objectId), textContent);
+                    }
+                } else if (element.getTable() != null && element.getTable().getTableRows() != null) {
+                    Table table = element.getTable();
+                    for (int r = 0; r < table.getTableRows().size(); r++) {
+                        TableRow row = table.getTableRows().get(r);
+                        if (row.getTableCells() == null) continue;
+                        for (int c = 0; c < row.getTableCells().size(); c++) {
+                            TableCell cell = row.getTableCells().get(c);
+                            if (cell.getText() == null) continue;
+
+                            String textContent = PresentationModel.concatenate(cell.getText());
+                            if (!textContent.isEmpty()) {
+                                textElements.put(new SlideObject(objectId, r, c), textContent);
+                            }
+                        }
+                    }
+                }
+            }
+        }
+
+        textBySlide.put(slide.getObjectId(), textElements);
+        textElements.forEach((slideObject, text) -> forEachToken(text, token ->
+                placeholders.computeIfAbsent(token, t -> new LinkedHashSet<>())
+                        .add(new PlaceholderLocation(slide.getObjectId(), slideObject))));
+    }
+
+    void removeSlide(String slideId) {
+        Map<SlideObject, String> removed = textBySlide.remove(slideId);
+        if (removed == null) return;
+
+        removed.forEach((slideObject, text) -> forEachToken(text, token -> {
+            Set<PlaceholderLocation> locations = placeholders.get(token);
+            if (locations == null) return;
+            locations.remove(new PlaceholderLocation(slideId, slideObject));
+            if (locations.isEmpty()) placeholders.remove(token);
+        }));
+    }
+
+    private static void forEachToken(String text, Consumer<String> action) {
+        if (text.indexOf("{{") < 0) return;
+
+        Matcher matcher = PLACEHOLDER_PATTERN.matcher(text);
+        while (matcher.find()) {
+            action.accept(matcher.group());
+        }
+    }
+}
@@ -0,0 +1,63 @@
+package org.fcnabc.autoppt.google;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+/**
+ * A token bucket whose refill rate adapts to rate limit responses: it is halved when the server rejects a call
+ * and recovers additively on every success, up to the configured rate.
+ * Callers reserve a token up front and wait for the returned delay, so concurrent callers queue up fairly.
+ */
+class TokenBucket {
+    private static final double MIN_RATE_FRACTION = 1.0 / 16;
+    private static final double RECOVERY_FRACTION = 1.0 / 20;
+
+    private final double maxPermitsPerSecond;
+    private final double capacity;
+    private final LongSupplier nanoClock;
+
+    private double permitsPerSecond;
+    private double tokens;
+    private long lastRefillNanos;
+
+    TokenBucket(int permitsPerMinute, LongSupplier nanoClock) {
+        this.maxPermitsPerSecond = permitsPerMinute / 60.0;
+        // A small burst allowance; a full minute's worth up front would let the first minute exceed the quota
+        this.capacity = Math.max(1, permitsPerMinute / 6);
+        this.nanoClock = nanoClock;
+        this.permitsPerSecond = maxPermitsPerSecond;
+        this.tokens = capacity;
+        this.lastRefillNanos = nanoClock.getAsLong();
+    }
+
+    /**
+     * Takes the given number of tokens and returns how long the caller has to wait before using them, in nanoseconds.
+     */
+    synchronized long reserve(int permits) {
+        refill();
+        tokens -= permits;
+        if (tokens >= 0) return 0;
+        return (long) (-tokens / permitsPerSecond * TimeUnit.SECONDS.toNanos(1));
+    }
+
+    synchronized void slowDown() {
+        refill();
+        permitsPerSecond = Math.max(maxPermitsPerSecond * MIN_RATE_FRACTION, permitsPerSecond / 2);
+    }
+
+    synchronized void speedUp() {
+        refill();
+        permitsPerSecond = Math.min(maxPermitsPerSecond, permitsPerSecond + maxPermitsPerSecond * RECOVERY_FRACTION);
+    }
+
+    synchronized double getPermitsPerSecond() {
+        return permitsPerSecond;
+    }
+
+    private void refill() {
+        long now = nanoClock.getAsLong();
+        double elapsedSeconds = (now - lastRefillNanos) / (double) TimeUnit.SECONDS.toNanos(1);
+        tokens = Math.min(capacity, tokens + elapsedSeconds * permitsPerSecond);
+        lastRefillNanos = now;
+    }
+}
@@ -0,0 +1,16 @@
+package org.fcnabc.autoppt.google.models;
+
+/**
+ * Counters for the calls made against one quota. throttledMillis is time spent waiting for a token before a call,
+ * backoffMillis is time spent waiting before a retry after a 429 or 5xx response.
+ */
+public record ApiCallMetrics(
+    long calls,
+    long retries,
+    long throttledMillis,
+    long backoffMillis
+) {
+    public long totalWaitMillis() {
+        return throttledMillis + backoffMillis;
+    }
+}
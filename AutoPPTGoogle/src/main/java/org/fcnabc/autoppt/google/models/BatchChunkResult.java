@@ -0,0 +1,12 @@
+package org.fcnabc.autoppt.google.models;
+
+/**
+ * Outcome of a single chunk sent as part of a chunked batch update.
+ * Chunks are numbered from 0 in the order they were submitted.
+ */
+public record BatchChunkResult(
+    int chunkIndex,
+    int requestCount,
+    long payloadBytes,
+    long latencyMillis
+) {}
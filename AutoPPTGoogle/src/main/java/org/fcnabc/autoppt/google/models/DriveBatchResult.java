@@ -0,0 +1,24 @@
+package org.fcnabc.autoppt.google.models;
+
+/**
+ * The outcome of one item of a Drive batch request. Exactly one of value (which may itself be null, e.g. for deletes)
+ * or errorCode/errorMessage describes the result; use isSuccess() to tell them apart.
+ */
+public record DriveBatchResult<T>(
+    String fileId,
+    T value,
+    Integer errorCode,
+    String errorMessage
+) {
+    public static <T> DriveBatchResult<T> success(String fileId, T value) {
+        return new DriveBatchResult<>(fileId, value, null, null);
+    }
+
+    public static <T> DriveBatchResult<T> failure(String fileId, int errorCode, String errorMessage) {
+        return new DriveBatchResult<>(fileId, null, errorCode, errorMessage);
+    }
+
+    public boolean isSuccess() {
+        return errorCode == null;
+    }
+}
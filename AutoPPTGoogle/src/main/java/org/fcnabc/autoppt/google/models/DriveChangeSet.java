@@ -0,0 +1,23 @@
+package org.fcnabc.autoppt.google.models;
+
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * The changes since a page token, and the token to pass next time to continue from where this set ends.
+ */
+public record DriveChangeSet(
+    List<DriveFileChange> changes,
+    String newStartPageToken
+) {
+    /**
+     * Returns the IDs of files that were created or modified and still exist.
+     */
+    public Set<String> changedFileIds() {
+        return changes.stream()
+                .filter(change -> !change.removed())
+                .map(DriveFileChange::fileId)
+                .collect(Collectors.toSet());
+    }
+}
@@ -0,0 +1,13 @@
+package org.fcnabc.autoppt.google.models;
+
+import com.google.api.client.util.DateTime;
+
+/**
+ * One entry of the Drive changes feed. removed is set if the file was deleted, trashed or is no longer accessible,
+ * in which case modifiedTime is null.
+ */
+public record DriveFileChange(
+    String fileId,
+    boolean removed,
+    DateTime modifiedTime
+) {}
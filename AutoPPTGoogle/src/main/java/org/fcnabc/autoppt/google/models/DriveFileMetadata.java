@@ -0,0 +1,17 @@
+package org.fcnabc.autoppt.google.models;
+
+import com.google.api.client.util.DateTime;
+
+/**
+ * The metadata of a Drive file that GoogleDrive caches. size and the checksums are null for Google Docs formats;
+ * sha256Checksum may also be missing for older files.
+ */
+public record DriveFileMetadata(
+    String id,
+    String name,
+    String mimeType,
+    DateTime modifiedTime,
+    Long size,
+    String md5Checksum,
+    String sha256Checksum
+) {}
@@ -9,7 +9,8 @@ public enum DriveMimeType {
     JPEG("image/jpeg"),
     PNG("image/png"),
     VIDEO_MP4("video/mp4"),
-    AUDIO_MP3("audio/mpeg");
+    AUDIO_MP3("audio/mpeg"),
+    BINARY("application/octet-stream");
 
     private final String mimeType;
 
@@ -0,0 +1,24 @@
+package org.fcnabc.autoppt.google.models;
+
+/**
+ * Controls how GoogleDrive uploads content. Content larger than resumableThresholdBytes, or of unknown length,
+ * is sent as a resumable upload in chunks of chunkSizeBytes; after a dropped connection the upload continues from
+ * the last offset the server confirmed instead of starting over. Smaller content is sent in a single request.
+ * chunkSizeBytes must be a multiple of 256 KiB.
+ */
+public record DriveUploadConfig(
+    long resumableThresholdBytes,
+    int chunkSizeBytes
+) {
+    private static final int CHUNK_GRANULARITY = 256 * 1024;
+
+    public DriveUploadConfig {
+        if (chunkSizeBytes <= 0 || chunkSizeBytes % CHUNK_GRANULARITY != 0) {
+            throw new IllegalArgumentException("Chunk size must be a positive multiple of 256 KiB: " + chunkSizeBytes);
+        }
+    }
+
+    public static DriveUploadConfig defaults() {
+        return new DriveUploadConfig(5L * 1024 * 1024, 8 * 1024 * 1024);
+    }
+}
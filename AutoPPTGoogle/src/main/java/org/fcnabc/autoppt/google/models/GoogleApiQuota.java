@@ -0,0 +1,31 @@
+package org.fcnabc.autoppt.google.models;
+
+/**
+ * The per-user quotas GoogleApiRateLimiter keeps a token bucket for, with their default request rates. A quota whose
+ * calls are not idempotent is not retried on a 5xx, since the failed call may already have been applied. DRIVE gets,
+ * lists, updates and deletes are idempotent; its creates and copies are not and are run through
+ * GoogleApiRateLimiter.executeNonIdempotent.
+ * https://developers.google.com/workspace/slides/api/limits
+ * https://developers.google.com/workspace/drive/api/guides/limits
+ */
+public enum GoogleApiQuota {
+    SLIDES_READ(60, true),
+    SLIDES_WRITE(60, false),
+    DRIVE(600, true);
+
+    private final int requestsPerMinute;
+    private final boolean idempotent;
+
+    GoogleApiQuota(int requestsPerMinute, boolean idempotent) {
+        this.requestsPerMinute = requestsPerMinute;
+        this.idempotent = idempotent;
+    }
+
+    public int getRequestsPerMinute() {
+        return requestsPerMinute;
+    }
+
+    public boolean isIdempotent() {
+        return idempotent;
+    }
+}
@@ -0,0 +1,27 @@
+package org.fcnabc.autoppt.google.models;
+
+import java.time.Duration;
+
+/**
+ * Settings for the HTTP transport shared by the Slides and Drive clients.
+ * maxConnections and keepAlive only apply to the JDK_HTTP2 transport; timeouts and gzip apply to both.
+ */
+public record HttpTransportConfig(
+    HttpTransportType transportType,
+    int maxConnections,
+    Duration keepAlive,
+    Duration connectTimeout,
+    Duration readTimeout,
+    boolean gzip
+) {
+    public static HttpTransportConfig defaults() {
+        return new HttpTransportConfig(
+            HttpTransportType.JDK_HTTP2,
+            16,
+            Duration.ofMinutes(5),
+            Duration.ofSeconds(20),
+            Duration.ofSeconds(60),
+            true
+        );
+    }
+}
@@ -0,0 +1,8 @@
+package org.fcnabc.autoppt.google.models;
+
+public enum HttpTransportType {
+    // HttpURLConnection based transport from GoogleNetHttpTransport
+    NET_HTTP,
+    // java.net.http.HttpClient with a shared connection pool and HTTP/2 multiplexing
+    JDK_HTTP2
+}
@@ -0,0 +1,9 @@
+package org.fcnabc.autoppt.google.models;
+
+/**
+ * Where a placeholder token (e.g. {{VERSE}}) occurs: the slide that contains it and the text box or table cell holding it.
+ */
+public record PlaceholderLocation(
+    String slideId,
+    SlideObject slideObject
+) {}
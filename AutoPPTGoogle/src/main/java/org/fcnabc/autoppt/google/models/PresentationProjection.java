@@ -0,0 +1,45 @@
+package org.fcnabc.autoppt.google.models;
+
+/**
+ * Named field projections for loading a presentation. Narrower profiles skip the geometry, styling and outline data
+ * the getters never read, which is most of a typical template's payload.
+ * Getters that need content a profile does not load fail with an IllegalStateException.
+ */
+public enum PresentationProjection {
+    // Every field of every slide
+    FULL("slides", true, true),
+    // Object IDs plus the text of text boxes and table cells
+    TEXT("slides(objectId,pageElements(objectId,"
+            + "shape(text(textElements(textRun(content)))),"
+            + "table(rows,columns,tableRows(tableCells(text(textElements(textRun(content)))))),"
+            + "elementGroup(children(objectId))))", true, true),
+    // Slide and page element object IDs only
+    OBJECT_IDS("slides(objectId,pageElements(objectId,elementGroup(children(objectId))))", false, false);
+
+    private static final String BASE_FIELDS = "presentationId,revisionId,";
+
+    private final String slideFields;
+    private final boolean includesText;
+    private final boolean includesTables;
+
+    PresentationProjection(String slideFields, boolean includesText, boolean includesTables) {
+        this.slideFields = slideFields;
+        this.includesText = includesText;
+        this.includesTables = includesTables;
+    }
+
+    /**
+     * Returns the field mask to pass to presentations.get.
+     */
+    public String getFields() {
+        return BASE_FIELDS + slideFields;
+    }
+
+    public boolean includesText() {
+        return includesText;
+    }
+
+    public boolean includesTables() {
+        return includesTables;
+    }
+}
@@ -0,0 +1,13 @@
+package org.fcnabc.autoppt.google.models;
+
+/**
+ * Outcome of coalescing the pending Slides request queue before it is sent.
+ */
+public record RequestOptimizationResult(
+    int requestsBefore,
+    int requestsAfter
+) {
+    public int removedCount() {
+        return requestsBefore - requestsAfter;
+    }
+}
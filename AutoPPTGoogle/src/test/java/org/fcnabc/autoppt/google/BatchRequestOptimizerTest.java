@@ -0,0 +1,126 @@
+package org.fcnabc.autoppt.google;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+
+import com.google.api.services.slides.v1.model.DeleteObjectRequest;
+import com.google.api.services.slides.v1.model.DeleteTextRequest;
+import com.google.api.services.slides.v1.model.DuplicateObjectRequest;
+import com.google.api.services.slides.v1.model.InsertTextRequest;
+import com.google.api.services.slides.v1.model.Range;
+import com.google.api.services.slides.v1.model.Request;
+import com.google.api.services.slides.v1.model.TextStyle;
+import com.google.api.services.slides.v1.model.UpdateTextStyleRequest;
+
+class BatchRequestOptimizerTest {
+
+    private static final Map<String, String> PAGE_IDS = Map.of(
+        "slide_1", "slide_1",
+        "box_1", "slide_1",
+        "box_2", "slide_1"
+    );
+
+    private static List<Request> setText(String id, String text) {
+        return List.of(
+            new Request().setDeleteText(new DeleteTextRequest().setObjectId(id).setTextRange(new Range().setType("ALL"))),
+            new Request().setInsertText(new InsertTextRequest().setObjectId(id).setText(text).setInsertionIndex(0)));
+    }
+
+    private static Request style(String id, Range range, TextStyle style, String fields) {
+        return new Request().setUpdateTextStyle(new UpdateTextStyleRequest()
+                .setObjectId(id).setTextRange(range).setStyle(style).setFields(fields));
+    }
+
+    private static Range all() {
+        return new Range().setType("ALL");
+    }
+
+    private static List<Request> optimize(List<Request> requests) {
+        return new BatchRequestOptimizer(PAGE_IDS).optimize(requests);
+    }
+
+    @Test
+    void testRepeatedSetTextKeepsOnlyLastWrite() {
+        List<Request> requests = new ArrayList<>();
+        requests.addAll(setText("box_1", "first"));
+        requests.addAll(setText("box_2", "other"));
+        requests.addAll(setText("box_1", "second"));
+
+        List<Request> optimized = optimize(requests);
+
+        assertEquals(4, optimized.size());
+        assertEquals(requests.subList(2, 6), optimized);
+    }
+
+    @Test
+    void testStyleUpdateBetweenWritesIsABarrier() {
+        List<Request> requests = new ArrayList<>();
+        requests.addAll(setText("box_1", "first"));
+        requests.add(style("box_1", all(), new TextStyle().setBold(true), "bold"));
+        requests.addAll(setText("box_1", "second"));
+
+        assertEquals(5, optimize(requests).size());
+    }
+
+    @Test
+    void testDuplicateIsABarrier() {
+        List<Request> requests = new ArrayList<>();
+        requests.addAll(setText("box_1", "first"));
+        requests.add(new Request().setDuplicateObject(new DuplicateObjectRequest().setObjectId("slide_1")));
+        requests.addAll(setText("box_1", "second"));
+
+        assertEquals(5, optimize(requests).size());
+    }
+
+    @Test
+    void testSupersededStyleIsDropped() {
+        Request fixed = style("box_1", new Range().setType("FIXED_RANGE").setStartIndex(0).setEndIndex(3),
+                new TextStyle().setBold(true), "bold");
+        Request wide = style("box_1", all(), new TextStyle().setBold(false).setItalic(true), "bold,italic");
+
+        assertEquals(List.of(wide), optimize(List.of(fixed, wide)));
+    }
+
+    @Test
+    void testSameRangeStylesAreMerged() {
+        Request color = style("box_1", all(), new TextStyle().setBold(true), "bold");
+        Request italic = style("box_1", all(), new TextStyle().setItalic(true), "italic");
+
+        List<Request> optimized = optimize(List.of(color, italic));
+
+        assertEquals(1, optimized.size());
+        UpdateTextStyleRequest merged = optimized.get(0).getUpdateTextStyle();
+        assertEquals("bold,italic", merged.getFields());
+        assertTrue(merged.getStyle().getBold());
+        assertTrue(merged.getStyle().getItalic());
+    }
+
+    @Test
+    void testEditsToDeletedSlideAreDropped() {
+        List<Request> requests = new ArrayList<>();
+        requests.addAll(setText("box_1", "gone"));
+        requests.add(style("box_2", all(), new TextStyle().setBold(true), "bold"));
+        Request delete = new Request().setDeleteObject(new DeleteObjectRequest().setObjectId("slide_1"));
+        requests.add(delete);
+
+        assertEquals(List.of(delete), optimize(requests));
+    }
+
+    @Test
+    void testEditsBeforeDuplicateOfDeletedSlideAreKept() {
+        List<Request> requests = new ArrayList<>();
+        requests.addAll(setText("box_1", "template"));
+        requests.add(new Request().setDuplicateObject(new DuplicateObjectRequest()
+                .setObjectId("slide_1")
+                .setObjectIds(Map.of("slide_1", "slide_2", "box_1", "box_3", "box_2", "box_4"))));
+        requests.addAll(setText("box_3", "copy"));
+        requests.add(new Request().setDeleteObject(new DeleteObjectRequest().setObjectId("slide_1")));
+
+        assertEquals(requests, optimize(requests));
+    }
+}
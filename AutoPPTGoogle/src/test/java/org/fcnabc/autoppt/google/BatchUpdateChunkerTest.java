@@ -0,0 +1,89 @@
+package org.fcnabc.autoppt.google;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import com.google.api.client.json.gson.GsonFactory;
+import com.google.api.services.slides.v1.model.DeleteObjectRequest;
+import com.google.api.services.slides.v1.model.DeleteTextRequest;
+import com.google.api.services.slides.v1.model.InsertTextRequest;
+import com.google.api.services.slides.v1.model.Range;
+import com.google.api.services.slides.v1.model.Request;
+
+class BatchUpdateChunkerTest {
+
+    private static Request deleteObject(String id) {
+        return new Request().setDeleteObject(new DeleteObjectRequest().setObjectId(id));
+    }
+
+    private static List<Request> setText(String id, String text) {
+        return List.of(
+            new Request().setDeleteText(new DeleteTextRequest().setObjectId(id).setTextRange(new Range().setType("ALL"))),
+            new Request().setInsertText(new InsertTextRequest().setObjectId(id).setText(text).setInsertionIndex(0)));
+    }
+
+    private static List<List<Request>> drain(BatchUpdateChunker chunker) {
+        List<List<Request>> chunks = new ArrayList<>();
+        BatchUpdateChunker.Chunk chunk;
+        while ((chunk = chunker.next()) != null) {
+            chunks.add(chunk.requests());
+        }
+        return chunks;
+    }
+
+    @Test
+    void testSplitsByRequestCountAndPreservesOrder() {
+        List<Request> requests = new ArrayList<>();
+        for (int i = 0; i < 7; i++) {
+            requests.add(deleteObject("slide_" + i));
+        }
+
+        List<List<Request>> chunks = drain(new BatchUpdateChunker(requests, GsonFactory.getDefaultInstance(), 3, Long.MAX_VALUE));
+
+        assertEquals(3, chunks.size());
+        assertEquals(List.of(3, 3, 1), chunks.stream().map(List::size).toList());
+        assertEquals(requests, chunks.stream().flatMap(List::stream).toList());
+    }
+
+    @Test
+    void testSplitsByPayloadSize() throws Exception {
+        Request request = deleteObject("slide_0");
+        long requestBytes = GsonFactory.getDefaultInstance().toString(request).length();
+        List<Request> requests = List.of(request, deleteObject("slide_1"), deleteObject("slide_2"));
+
+        List<List<Request>> chunks = drain(new BatchUpdateChunker(requests, GsonFactory.getDefaultInstance(), 100, requestBytes * 2));
+
+        assertEquals(List.of(2, 1), chunks.stream().map(List::size).toList());
+    }
+
+    @Test
+    void testDoesNotSplitSetTextPair() {
+        List<Request> requests = new ArrayList<>();
+        requests.add(deleteObject("slide_0"));
+        requests.addAll(setText("box_1", "Hello"));
+
+        List<List<Request>> chunks = drain(new BatchUpdateChunker(requests, GsonFactory.getDefaultInstance(), 2, Long.MAX_VALUE));
+
+        assertEquals(List.of(1, 2), chunks.stream().map(List::size).toList());
+        assertNotNull(chunks.get(1).get(0).getDeleteText());
+        assertNotNull(chunks.get(1).get(1).getInsertText());
+    }
+
+    @Test
+    void testOversizedUnitIsSentAlone() {
+        List<Request> requests = List.of(deleteObject("slide_0"), deleteObject("slide_1"));
+
+        List<List<Request>> chunks = drain(new BatchUpdateChunker(requests, GsonFactory.getDefaultInstance(), 10, 1));
+
+        assertEquals(List.of(1, 1), chunks.stream().map(List::size).toList());
+    }
+
+    @Test
+    void testEmptyRequestsYieldNoChunks() {
+        assertNull(new BatchUpdateChunker(List.of(), GsonFactory.getDefaultInstance(), 10, 1024).next());
+    }
+}
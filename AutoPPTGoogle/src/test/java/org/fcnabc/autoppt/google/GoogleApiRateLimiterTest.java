@@ -0,0 +1,141 @@
+package org.fcnabc.autoppt.google;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.google.api.client.http.HttpHeaders;
+import com.google.api.client.http.HttpResponseException;
+
+import org.fcnabc.autoppt.google.models.ApiCallMetrics;
+import org.fcnabc.autoppt.google.models.GoogleApiQuota;
+
+class GoogleApiRateLimiterTest {
+
+    private final AtomicLong nanoTime = new AtomicLong();
+    private final List<Long> sleeps = new ArrayList<>();
+    private GoogleApiRateLimiter rateLimiter;
+
+    private static HttpResponseException error(int statusCode, HttpHeaders headers) {
+        return new HttpResponseException.Builder(statusCode, "error", headers).build();
+    }
+
+    @BeforeEach
+    void setUp() {
+        // Sleeping advances the fake clock so the token bucket sees the time pass
+        rateLimiter = new GoogleApiRateLimiter(nanoTime::get, millis -> {
+            sleeps.add(millis);
+            nanoTime.addAndGet(TimeUnit.MILLISECONDS.toNanos(millis));
+        });
+    }
+
+    @Test
+    void testRetriesTooManyRequestsHonoringRetryAfter() throws IOException {
+        AtomicInteger attempts = new AtomicInteger();
+
+        String result = rateLimiter.execute(GoogleApiQuota.SLIDES_WRITE, () -> {
+            if (attempts.incrementAndGet() == 1) throw error(429, new HttpHeaders().set("Retry-After", "3"));
+            return "ok";
+        });
+
+        assertEquals("ok", result);
+        assertEquals(List.of(3000L), sleeps);
+        ApiCallMetrics metrics = rateLimiter.getMetrics(GoogleApiQuota.SLIDES_WRITE);
+        assertEquals(2, metrics.calls());
+        assertEquals(1, metrics.retries());
+        assertEquals(3000, metrics.backoffMillis());
+    }
+
+    @Test
+    void testServerErrorsBackOffExponentiallyUntilGivingUp() {
+        AtomicInteger attempts = new AtomicInteger();
+
+        HttpResponseException e = assertThrows(HttpResponseException.class, () ->
+            rateLimiter.execute(GoogleApiQuota.DRIVE, () -> {
+                attempts.incrementAndGet();
+                throw error(503, new HttpHeaders());
+            }));
+
+        assertEquals(503, e.getStatusCode());
+        assertEquals(6, attempts.get());
+        assertEquals(5, sleeps.size());
+        for (int i = 0; i < sleeps.size(); i++) {
+            long backoff = 1000L << i;
+            assertTrue(sleeps.get(i) >= backoff / 2 && sleeps.get(i) <= backoff, "Backoff " + i + " was " + sleeps.get(i));
+        }
+    }
+
+    @Test
+    void testClientErrorsAreNotRetried() {
+        AtomicInteger attempts = new AtomicInteger();
+
+        assertThrows(HttpResponseException.class, () ->
+            rateLimiter.execute(GoogleApiQuota.DRIVE, () -> {
+                attempts.incrementAndGet();
+                throw error(404, new HttpHeaders());
+            }));
+
+        assertEquals(1, attempts.get());
+        assertTrue(sleeps.isEmpty());
+    }
+
+    @Test
+    void testSlidesWritesAreNotRetriedOnServerErrors() {
+        AtomicInteger attempts = new AtomicInteger();
+
+        assertThrows(HttpResponseException.class, () ->
+            rateLimiter.execute(GoogleApiQuota.SLIDES_WRITE, () -> {
+                attempts.incrementAndGet();
+                throw error(500, new HttpHeaders());
+            }));
+
+        assertEquals(1, attempts.get(), "The failed batchUpdate may have been applied");
+        assertTrue(sleeps.isEmpty());
+    }
+
+    @Test
+    void testNonIdempotentCallsAreOnlyRetriedWhenRateLimited() throws IOException {
+        AtomicInteger attempts = new AtomicInteger();
+
+        assertThrows(HttpResponseException.class, () ->
+            rateLimiter.executeNonIdempotent(GoogleApiQuota.DRIVE, () -> {
+                attempts.incrementAndGet();
+                throw error(503, new HttpHeaders());
+            }));
+        assertEquals(1, attempts.get(), "The failed create may have been applied");
+
+        String result = rateLimiter.executeNonIdempotent(GoogleApiQuota.DRIVE, () -> {
+            if (attempts.incrementAndGet() == 2) throw error(429, new HttpHeaders());
+            return "ok";
+        });
+        assertEquals("ok", result);
+        assertEquals(3, attempts.get());
+    }
+
+    @Test
+    void testCallsBeyondBurstAreThrottled() throws IOException {
+        // SLIDES_READ allows 60 per minute with a burst of 10, so the 11th call waits one second
+        for (int i = 0; i < 11; i++) {
+            rateLimiter.execute(GoogleApiQuota.SLIDES_READ, () -> null);
+        }
+
+        assertEquals(List.of(1000L), sleeps);
+        assertEquals(1000, rateLimiter.getMetrics(GoogleApiQuota.SLIDES_READ).throttledMillis());
+    }
+
+    @Test
+    void testParseRetryAfter() {
+        assertEquals(5000L, GoogleApiRateLimiter.parseRetryAfter("5"));
+        assertEquals(0L, GoogleApiRateLimiter.parseRetryAfter("Wed, 21 Oct 2015 07:28:00 GMT"));
+        assertNull(GoogleApiRateLimiter.parseRetryAfter("soon"));
+        assertNull(GoogleApiRateLimiter.parseRetryAfter(null));
+    }
+}
@@ -0,0 +1,77 @@
+package org.fcnabc.autoppt.google;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+import java.io.IOException;
+import java.util.Optional;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+
+import com.google.api.client.auth.oauth2.Credential;
+
+class GoogleCredentialManagerTest {
+
+    private GoogleAuth googleAuth;
+    private ScheduledExecutorService scheduler;
+    private Credential credential;
+    private GoogleCredentialManager manager;
+
+    @BeforeEach
+    void setUp() {
+        googleAuth = mock(GoogleAuth.class);
+        scheduler = mock(ScheduledExecutorService.class);
+        credential = mock(Credential.class);
+        when(credential.getRefreshToken()).thenReturn("refresh");
+        when(credential.getAccessToken()).thenReturn("access");
+        when(credential.getExpiresInSeconds()).thenReturn(3600L);
+        manager = new GoogleCredentialManager(googleAuth, scheduler);
+    }
+
+    @Test
+    void testWarmStartUsesStoredCredentialAndSchedulesRefreshAhead() throws IOException {
+        when(googleAuth.loadStoredCredential()).thenReturn(Optional.of(credential));
+
+        assertSame(credential, manager.getCredential());
+        assertSame(credential, manager.getCredential());
+
+        verify(googleAuth, never()).authorize();
+        verify(googleAuth, times(1)).loadStoredCredential();
+        verify(scheduler).schedule(any(Runnable.class),
+                eq(TimeUnit.SECONDS.toMillis(3600) - GoogleCredentialManager.REFRESH_AHEAD.toMillis()), eq(TimeUnit.MILLISECONDS));
+    }
+
+    @Test
+    void testInteractiveFlowRunsWithoutStoredToken() throws IOException {
+        when(googleAuth.loadStoredCredential()).thenReturn(Optional.empty());
+        when(googleAuth.authorize()).thenReturn(credential);
+
+        assertSame(credential, manager.getCredential());
+        verify(googleAuth).authorize();
+    }
+
+    @Test
+    void testBackgroundRefreshReschedulesAndRetriesOnFailure() throws IOException {
+        when(googleAuth.loadStoredCredential()).thenReturn(Optional.of(credential));
+        when(credential.refreshToken()).thenReturn(true).thenThrow(new IOException("offline"));
+        manager.getCredential();
+
+        ArgumentCaptor<Runnable> refresh = ArgumentCaptor.forClass(Runnable.class);
+        verify(scheduler).schedule(refresh.capture(), anyLong(), any());
+        refresh.getValue().run();
+        refresh.getValue().run();
+
+        verify(credential, times(2)).refreshToken();
+        verify(scheduler, times(2)).schedule(any(Runnable.class),
+                eq(TimeUnit.SECONDS.toMillis(3600) - GoogleCredentialManager.REFRESH_AHEAD.toMillis()), eq(TimeUnit.MILLISECONDS));
+        verify(scheduler).schedule(any(Runnable.class),
+                eq(GoogleCredentialManager.RETRY_DELAY.toMillis()), eq(TimeUnit.MILLISECONDS));
+    }
+}
@@ -0,0 +1,253 @@
+package org.fcnabc.autoppt.google;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Supplier;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import com.google.api.client.http.LowLevelHttpRequest;
+import com.google.api.client.http.LowLevelHttpResponse;
+import com.google.api.client.json.gson.GsonFactory;
+import com.google.api.client.testing.http.MockHttpTransport;
+import com.google.api.client.testing.http.MockLowLevelHttpRequest;
+import com.google.api.client.testing.http.MockLowLevelHttpResponse;
+import com.google.api.services.drive.Drive;
+
+import org.fcnabc.autoppt.google.models.DriveBatchResult;
+import org.fcnabc.autoppt.google.models.DriveChangeSet;
+import org.fcnabc.autoppt.google.models.DriveFileMetadata;
+import org.fcnabc.autoppt.google.models.DriveMimeType;
+import org.fcnabc.autoppt.google.models.DriveUploadConfig;
+import org.fcnabc.autoppt.google.models.MetadataCacheStats;
+
+class GoogleDriveTest {
+
+    private final List<String> requestedUrls = new ArrayList<>();
+    private Supplier<MockLowLevelHttpResponse> response = () -> new MockLowLevelHttpResponse()
+            .setContentType("text/plain").setContent("  Amazing Grace\n\n");
+    private Drive drive;
+    private GoogleDrive googleDrive;
+
+    private static String batchPart(int index, String statusLine, String json) {
+        return "--batch_boundary\r\n"
+                + "Content-Type: application/http\r\n"
+                + "Content-ID: <response-" + index + ">\r\n\r\n"
+                + statusLine + "\r\n"
+                + "Content-Type: application/json; charset=UTF-8\r\n\r\n"
+                + json + "\r\n";
+    }
+
+    @BeforeEach
+    void setUp() {
+        MockHttpTransport transport = new MockHttpTransport() {
+            @Override
+            public LowLevelHttpRequest buildRequest(String method, String url) {
+                requestedUrls.add(url);
+                return new MockLowLevelHttpRequest(url) {
+                    @Override
+                    public LowLevelHttpResponse execute() {
+                        return response.get();
+                    }
+                };
+            }
+        };
+        drive = new Drive.Builder(transport, GsonFactory.getDefaultInstance(), null).setApplicationName("test").build();
+        googleDrive = new GoogleDrive(drive, new GoogleApiRateLimiter(), DriveUploadConfig.defaults());
+    }
+
+    @Test
+    void testDownloadFileIsOneMediaRequest() throws IOException {
+        assertEquals("Amazing Grace", googleDrive.downloadFile("file_1"));
+
+        assertEquals(1, requestedUrls.size());
+        assertTrue(requestedUrls.get(0).contains("alt=media"), requestedUrls.get(0));
+    }
+
+    @Test
+    void testDownloadByteBuffer() throws IOException {
+        ByteBuffer buffer = googleDrive.downloadByteBuffer("file_1");
+
+        assertTrue(buffer.isReadOnly());
+        assertEquals(17, buffer.remaining());
+    }
+
+    @Test
+    void testDownloadBytesEnforcesSizeCap() throws IOException {
+        assertEquals(17, googleDrive.downloadBytes("file_1", 17).length);
+        assertThrows(IOException.class, () -> googleDrive.downloadBytes("file_1", 16));
+    }
+
+    @Test
+    void testFilesExistUsesOneBatchRequest() throws IOException {
+        response = () -> new MockLowLevelHttpResponse()
+                .setContentType("multipart/mixed; boundary=batch_boundary")
+                .setContent(batchPart(1, "HTTP/1.1 200 OK", "{\"id\": \"file_1\"}")
+                        + batchPart(2, "HTTP/1.1 404 Not Found", "{\"error\": {\"code\": 404, \"message\": \"File not found\"}}")
+                        + batchPart(3, "HTTP/1.1 403 Forbidden", "{\"error\": {\"code\": 403, \"message\": \"Forbidden\"}}")
+                        + "--batch_boundary--");
+
+        Map<String, DriveBatchResult<Boolean>> results = googleDrive.filesExist(List.of("file_1", "file_2", "file_3", "file_1"));
+
+        assertEquals(1, requestedUrls.size());
+        assertEquals(List.of("file_1", "file_2", "file_3"), List.copyOf(results.keySet()));
+        assertTrue(results.get("file_1").value());
+        assertFalse(results.get("file_2").value());
+        assertTrue(results.get("file_2").isSuccess());
+        assertFalse(results.get("file_3").isSuccess());
+        assertEquals(403, results.get("file_3").errorCode());
+    }
+
+    @Test
+    void testRetryableBatchItemsAreResentAlone() throws IOException {
+        googleDrive = new GoogleDrive(drive, new GoogleApiRateLimiter(System::nanoTime, millis -> {}), DriveUploadConfig.defaults());
+        List<String> batches = new ArrayList<>(List.of(
+                batchPart(1, "HTTP/1.1 200 OK", "{\"id\": \"file_1\", \"name\": \"a.txt\"}")
+                        + batchPart(2, "HTTP/1.1 503 Service Unavailable", "{\"error\": {\"code\": 503, \"message\": \"Backend error\"}}")
+                        + "--batch_boundary--",
+                batchPart(1, "HTTP/1.1 200 OK", "{\"id\": \"file_2\", \"name\": \"b.txt\"}")
+                        + "--batch_boundary--"));
+        response = () -> new MockLowLevelHttpResponse()
+                .setContentType("multipart/mixed; boundary=batch_boundary")
+                .setContent(batches.remove(0));
+
+        Map<String, DriveBatchResult<DriveFileMetadata>> results = googleDrive.getFilesMetadata(List.of("file_1", "file_2"));
+
+        assertEquals(2, requestedUrls.size());
+        assertEquals("a.txt", results.get("file_1").value().name());
+        assertEquals("b.txt", results.get("file_2").value().name());
+        assertEquals("b.txt", googleDrive.getFileMetadata("file_2").name(), "Batch results are cached");
+        assertEquals(2, requestedUrls.size());
+    }
+
+    @Test
+    void testMetadataIsCachedUntilDeleted() throws IOException {
+        response = () -> new MockLowLevelHttpResponse().setContentType("application/json")
+                .setContent("{\"id\": \"file_1\", \"name\": \"hymn.txt\", \"modifiedTime\": \"2026-01-01T00:00:00Z\"}");
+
+        assertEquals("hymn.txt", googleDrive.getFileMetadata("file_1").name());
+        assertTrue(googleDrive.fileExists("file_1"));
+        assertNotNull(googleDrive.getFileLastModifiedTime("file_1"));
+        assertEquals(1, requestedUrls.size());
+
+        googleDrive.deleteFile("file_1");
+        googleDrive.getFileMetadata("file_1");
+
+        assertEquals(3, requestedUrls.size(), "Delete invalidates the cached entry");
+        MetadataCacheStats stats = googleDrive.getMetadataCacheStats();
+        assertEquals(2, stats.hitCount());
+        assertEquals(2, stats.missCount());
+    }
+
+    @Test
+    void testDeleteInvalidatesMetadataCachedWhileInFlight() throws IOException {
+        response = () -> {
+            if (requestedUrls.size() == 2) {
+                // A concurrent lookup while the delete request is in flight
+                try {
+                    googleDrive.getFileMetadata("file_1");
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+                return new MockLowLevelHttpResponse().setStatusCode(204);
+            }
+            return new MockLowLevelHttpResponse().setContentType("application/json")
+                    .setContent("{\"id\": \"file_1\", \"name\": \"hymn.txt\"}");
+        };
+
+        googleDrive.getFileMetadata("file_1");
+        googleDrive.deleteFile("file_1");
+        assertEquals(3, requestedUrls.size());
+
+        googleDrive.getFileMetadata("file_1");
+        assertEquals(4, requestedUrls.size(), "The entry cached during the delete must not survive it");
+    }
+
+    @Test
+    void testListChangesFollowsPagesUntilNewStartToken() throws IOException {
+        response = () -> {
+            String url = requestedUrls.get(requestedUrls.size() - 1);
+            String json = url.contains("pageToken=1")
+                    ? "{\"nextPageToken\": \"2\", \"changes\": [{\"fileId\": \"file_1\", \"file\": {\"modifiedTime\": \"2026-01-01T00:00:00Z\"}}]}"
+                    : "{\"newStartPageToken\": \"3\", \"changes\": [{\"fileId\": \"file_2\", \"removed\": true}]}";
+            return new MockLowLevelHttpResponse().setContentType("application/json").setContent(json);
+        };
+
+        DriveChangeSet changeSet = googleDrive.listChanges("1");
+
+        assertEquals(2, requestedUrls.size());
+        assertEquals("3", changeSet.newStartPageToken());
+        assertEquals(Set.of("file_1"), changeSet.changedFileIds());
+        assertTrue(changeSet.changes().get(1).removed());
+    }
+
+    @Test
+    void testListChangesRejectsPageWithoutTokens() {
+        response = () -> new MockLowLevelHttpResponse().setContentType("application/json")
+                .setContent("{\"changes\": [{\"fileId\": \"file_1\", \"removed\": true}]}");
+
+        IOException e = assertThrows(IOException.class, () -> googleDrive.listChanges("1"));
+        assertTrue(e.getMessage().contains("neither nextPageToken nor newStartPageToken"), e.getMessage());
+        assertEquals(1, requestedUrls.size());
+    }
+
+    @Test
+    void testUpdateFileSkipsUnchangedContent(@TempDir Path tempDir) throws Exception {
+        Path localFile = Files.writeString(tempDir.resolve("hymn.txt"), "Amazing Grace");
+        String md5 = HexFormat.of().formatHex(MessageDigest.getInstance("MD5").digest("Amazing Grace".getBytes()));
+        response = () -> new MockLowLevelHttpResponse().setContentType("application/json")
+                .setContent("{\"size\": \"13\", \"md5Checksum\": \"" + md5 + "\"}");
+
+        assertFalse(googleDrive.updateFile("file_1", DriveMimeType.PLAIN_TEXT, localFile.toFile()));
+        assertEquals(1, requestedUrls.size(), "Only the checksum is fetched");
+        assertEquals(13, googleDrive.getBytesSaved());
+    }
+
+    @Test
+    void testCopyAndUploadAreNotRetriedOnServerErrors() {
+        response = () -> new MockLowLevelHttpResponse().setStatusCode(503).setContentType("application/json")
+                .setContent("{\"error\": {\"code\": 503, \"message\": \"Backend error\"}}");
+
+        assertThrows(IOException.class, () -> googleDrive.duplicateFile("file_1", "copy.pptx"));
+        assertThrows(IOException.class, () -> googleDrive.uploadFile("hymn.txt", DriveMimeType.PLAIN_TEXT, "Amazing Grace".getBytes()));
+        assertEquals(2, requestedUrls.size(), "A retry could leave a duplicate file in Drive");
+    }
+
+    @Test
+    void testSmallUploadIsOneRequest() throws IOException {
+        response = () -> new MockLowLevelHttpResponse().setContentType("application/json").setContent("{\"id\": \"new_file\"}");
+
+        assertEquals("new_file", googleDrive.uploadFile("hymn.txt", DriveMimeType.PLAIN_TEXT, "Amazing Grace".getBytes()));
+        assertEquals(1, requestedUrls.size());
+        assertTrue(requestedUrls.get(0).contains("uploadType=multipart"), requestedUrls.get(0));
+    }
+
+    @Test
+    void testStreamAboveThresholdIsUploadedResumably() throws IOException {
+        GoogleDrive resumableDrive = new GoogleDrive(drive, new GoogleApiRateLimiter(), new DriveUploadConfig(0, 256 * 1024));
+        response = () -> requestedUrls.size() == 1
+                ? new MockLowLevelHttpResponse().addHeader("Location", "https://upload.test/session?uploadType=resumable&upload_id=1")
+                : new MockLowLevelHttpResponse().setContentType("application/json").setContent("{\"id\": \"new_file\"}");
+
+        String fileId = resumableDrive.uploadFile("video.mp4", DriveMimeType.VIDEO_MP4, new ByteArrayInputStream(new byte[1000]), 1000);
+
+        assertEquals("new_file", fileId);
+        assertEquals(2, requestedUrls.size());
+        assertTrue(requestedUrls.get(0).contains("uploadType=resumable"), requestedUrls.get(0));
+        assertTrue(requestedUrls.get(1).contains("upload_id=1"), requestedUrls.get(1));
+    }
+}
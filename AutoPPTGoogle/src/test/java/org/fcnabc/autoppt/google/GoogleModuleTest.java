@@ -0,0 +1,38 @@
+package org.fcnabc.autoppt.google;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import org.junit.jupiter.api.Test;
+
+import com.google.api.client.http.HttpTransport;
+import com.google.api.client.http.javanet.NetHttpTransport;
+
+import org.fcnabc.autoppt.google.models.HttpTransportConfig;
+
+class GoogleModuleTest {
+
+    @Test
+    void testJdkTransportDoesNotBuildNetHttpTransport() {
+        HttpTransport transport = new GoogleModule().provideHttpTransport(HttpTransportConfig.defaults(), () -> {
+            throw new AssertionError("NetHttpTransport must only be built when it is selected");
+        });
+
+        assertInstanceOf(JdkHttpTransport.class, transport);
+    }
+
+    @Test
+    void testConfiguredPoolSettingsDoNotOverrideExistingProperties() {
+        String previous = System.setProperty("jdk.httpclient.connectionPoolSize", "4");
+        try {
+            new GoogleModule().provideHttpTransport(HttpTransportConfig.defaults(), NetHttpTransport::new);
+
+            assertEquals("4", System.getProperty("jdk.httpclient.connectionPoolSize"));
+        } finally {
+            if (previous == null) {
+                System.clearProperty("jdk.httpclient.connectionPoolSize");
+            } else {
+                System.setProperty("jdk.httpclient.connectionPoolSize", previous);
+            }
+        }
+    }
+}
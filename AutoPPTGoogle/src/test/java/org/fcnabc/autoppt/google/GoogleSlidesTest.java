@@ -0,0 +1,91 @@
+package org.fcnabc.autoppt.google;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import com.google.api.client.http.LowLevelHttpRequest;
+import com.google.api.client.http.LowLevelHttpResponse;
+import com.google.api.client.json.gson.GsonFactory;
+import com.google.api.client.testing.http.MockHttpTransport;
+import com.google.api.client.testing.http.MockLowLevelHttpRequest;
+import com.google.api.client.testing.http.MockLowLevelHttpResponse;
+import com.google.api.services.slides.v1.Slides;
+
+class GoogleSlidesTest {
+
+    @TempDir
+    Path tempDir;
+
+    private final List<String> batchUpdates = new ArrayList<>();
+    private String remoteRevisionId = "rev_1";
+    private int batchUpdateStatus = 503;
+    private GoogleSlides googleSlides;
+
+    private static MockLowLevelHttpResponse json(int statusCode, String content) {
+        return new MockLowLevelHttpResponse().setStatusCode(statusCode).setContentType("application/json").setContent(content);
+    }
+
+    @BeforeEach
+    void setUp() throws IOException {
+        MockHttpTransport transport = new MockHttpTransport() {
+            @Override
+            public LowLevelHttpRequest buildRequest(String method, String url) {
+                return new MockLowLevelHttpRequest(url) {
+                    @Override
+                    public LowLevelHttpResponse execute() {
+                        if (url.contains(":batchUpdate")) {
+                            batchUpdates.add(url);
+                            return batchUpdateStatus == 200
+                                    ? json(200, "{\"presentationId\": \"presentation\", \"writeControl\": {\"requiredRevisionId\": \"rev_2\"}}")
+                                    : json(batchUpdateStatus, "{\"error\": {\"code\": " + batchUpdateStatus + ", \"message\": \"Backend error\"}}");
+                        }
+                        if (url.contains("fields=revisionId")) {
+                            return json(200, "{\"revisionId\": \"" + remoteRevisionId + "\"}");
+                        }
+                        return json(200, "{\"presentationId\": \"presentation\", \"revisionId\": \"" + remoteRevisionId + "\", "
+                                + "\"slides\": [{\"objectId\": \"slide_1\"}, {\"objectId\": \"slide_2\"}]}");
+                    }
+                };
+            }
+        };
+        Slides service = new Slides.Builder(transport, GsonFactory.getDefaultInstance(), null).setApplicationName("test").build();
+        googleSlides = new GoogleSlides(service, new PresentationSnapshotCache(tempDir), new GoogleApiRateLimiter());
+        googleSlides.setPresentationContext("presentation");
+    }
+
+    @Test
+    void testServerErrorWithUnchangedRevisionKeepsRequestsPending() throws IOException {
+        googleSlides.deleteSlide("slide_2");
+
+        IOException e = assertThrows(IOException.class, googleSlides::executeUpdates);
+        assertTrue(e.getMessage().contains("1 remain pending"), e.getMessage());
+        assertEquals(1, batchUpdates.size(), "A batchUpdate that failed with a 5xx is not retried");
+
+        batchUpdateStatus = 200;
+        assertEquals(1, googleSlides.executeUpdates().size());
+        assertEquals(2, batchUpdates.size());
+    }
+
+    @Test
+    void testServerErrorWithMovedRevisionDropsChunkOfUnknownOutcome() throws IOException {
+        googleSlides.deleteSlide("slide_2");
+        // The failed batchUpdate was applied after all
+        remoteRevisionId = "rev_2";
+
+        IOException e = assertThrows(IOException.class, googleSlides::executeUpdates);
+        assertTrue(e.getMessage().contains("1 were dropped because their outcome is unknown"), e.getMessage());
+        assertEquals(1, batchUpdates.size());
+
+        assertTrue(googleSlides.syncPresentationContext());
+        assertTrue(googleSlides.executeUpdates().isEmpty(), "The chunk must not be sent a second time");
+        assertEquals(1, batchUpdates.size());
+    }
+}
@@ -0,0 +1,76 @@
+package org.fcnabc.autoppt.google;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.http.HttpClient;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.google.api.client.http.ByteArrayContent;
+import com.google.api.client.http.GZipEncoding;
+import com.google.api.client.http.GenericUrl;
+import com.google.api.client.http.HttpRequest;
+import com.google.api.client.http.HttpResponse;
+import com.sun.net.httpserver.HttpServer;
+
+class JdkHttpTransportTest {
+
+    private HttpServer server;
+    private JdkHttpTransport transport;
+    private final AtomicReference<String> receivedBody = new AtomicReference<>();
+
+    @BeforeEach
+    void setUp() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.createContext("/echo", exchange -> {
+            byte[] body = exchange.getRequestBody().readAllBytes();
+            if ("gzip".equals(exchange.getRequestHeaders().getFirst("Content-Encoding"))) {
+                body = new GZIPInputStream(new java.io.ByteArrayInputStream(body)).readAllBytes();
+            }
+            receivedBody.set(new String(body, StandardCharsets.UTF_8));
+
+            ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+            try (GZIPOutputStream gzip = new GZIPOutputStream(compressed)) {
+                gzip.write("{\"ok\":true}".getBytes(StandardCharsets.UTF_8));
+            }
+            exchange.getResponseHeaders().set("Content-Type", "application/json");
+            exchange.getResponseHeaders().set("Content-Encoding", "gzip");
+            exchange.sendResponseHeaders(200, compressed.size());
+            try (OutputStream out = exchange.getResponseBody()) {
+                compressed.writeTo(out);
+            }
+        });
+        server.start();
+        transport = new JdkHttpTransport(HttpClient.newHttpClient());
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        transport.shutdown();
+        server.stop(0);
+    }
+
+    @Test
+    void testGzipRequestAndResponseBodies() throws IOException {
+        GenericUrl url = new GenericUrl("http://localhost:" + server.getAddress().getPort() + "/echo");
+        HttpRequest request = transport.createRequestFactory()
+                .buildPostRequest(url, ByteArrayContent.fromString("application/json", "{\"slides\":[]}"))
+                .setEncoding(new GZipEncoding());
+
+        HttpResponse response = request.execute();
+
+        assertEquals(200, response.getStatusCode());
+        assertEquals("{\"ok\":true}", response.parseAsString());
+        assertEquals("{\"slides\":[]}", receivedBody.get());
+    }
+}
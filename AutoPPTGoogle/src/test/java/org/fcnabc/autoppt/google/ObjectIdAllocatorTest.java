@@ -0,0 +1,38 @@
+package org.fcnabc.autoppt.google;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.HashSet;
+import java.util.Set;
+
+import org.junit.jupiter.api.Test;
+
+class ObjectIdAllocatorTest {
+
+    @Test
+    void testIdsHaveFixedLengthAndAreUnique() {
+        ObjectIdAllocator allocator = new ObjectIdAllocator();
+        Set<String> ids = new HashSet<>();
+        int length = allocator.next().length();
+
+        for (int i = 0; i < 10_000; i++) {
+            String id = allocator.next();
+            assertEquals(length, id.length());
+            assertTrue(id.matches("[a-zA-Z0-9_][a-zA-Z0-9_-]{4,49}"), id);
+            assertTrue(ids.add(id), "Duplicate ID " + id);
+        }
+    }
+
+    @Test
+    void testSessionsUseDistinctPrefixes() {
+        assertNotEquals(new ObjectIdAllocator().next(), new ObjectIdAllocator().next());
+    }
+
+    @Test
+    void testCounterIsZeroPadded() {
+        ObjectIdAllocator allocator = new ObjectIdAllocator("p000000");
+
+        assertEquals("p000000_00000000", allocator.next());
+        assertEquals("p000000_00000001", allocator.next());
+    }
+}
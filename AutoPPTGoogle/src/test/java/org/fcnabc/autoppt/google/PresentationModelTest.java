@@ -0,0 +1,180 @@
+package org.fcnabc.autoppt.google;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.google.api.services.slides.v1.model.CreateSlideRequest;
+import com.google.api.services.slides.v1.model.DeleteObjectRequest;
+import com.google.api.services.slides.v1.model.DeleteTextRequest;
+import com.google.api.services.slides.v1.model.DuplicateObjectRequest;
+import com.google.api.services.slides.v1.model.InsertTextRequest;
+import com.google.api.services.slides.v1.model.Page;
+import com.google.api.services.slides.v1.model.PageElement;
+import com.google.api.services.slides.v1.model.Presentation;
+import com.google.api.services.slides.v1.model.Range;
+import com.google.api.services.slides.v1.model.ReplaceAllTextRequest;
+import com.google.api.services.slides.v1.model.Request;
+import com.google.api.services.slides.v1.model.Shape;
+import com.google.api.services.slides.v1.model.SubstringMatchCriteria;
+import com.google.api.services.slides.v1.model.Table;
+import com.google.api.services.slides.v1.model.TableCell;
+import com.google.api.services.slides.v1.model.TableCellLocation;
+import com.google.api.services.slides.v1.model.TableRow;
+import com.google.api.services.slides.v1.model.TextContent;
+import com.google.api.services.slides.v1.model.TextElement;
+import com.google.api.services.slides.v1.model.TextRun;
+
+import org.fcnabc.autoppt.google.models.PresentationProjection;
+
+class PresentationModelTest {
+
+    private PresentationModel model;
+
+    private static PageElement textBox(String id, String text) {
+        TextElement run = new TextElement().setTextRun(new TextRun().setContent(text));
+        return new PageElement().setObjectId(id)
+                .setShape(new Shape().setText(new TextContent().setTextElements(new ArrayList<>(List.of(run)))));
+    }
+
+    private static String textOf(Page slide, int elementIndex) {
+        return PresentationModel.concatenate(slide.getPageElements().get(elementIndex).getShape().getText());
+    }
+
+    @BeforeEach
+    void setUp() {
+        Page slide = new Page().setObjectId("slide_1")
+                .setPageElements(new ArrayList<>(List.of(textBox("box_1", "Hello\n"))));
+        model = new PresentationModel(new Presentation()
+                .setPresentationId("presentation")
+                .setRevisionId("rev_1")
+                .setSlides(new ArrayList<>(List.of(slide))));
+    }
+
+    @Test
+    void testDuplicateSlideIsInsertedAfterSourceWithMappedIds() {
+        model.apply(new Request().setDuplicateObject(new DuplicateObjectRequest()
+                .setObjectId("slide_1")
+                .setObjectIds(Map.of("slide_1", "slide_1_copy", "box_1", "box_1_copy"))));
+
+        assertEquals(2, model.getSlides().size());
+        assertEquals("slide_1_copy", model.getSlides().get(1).getObjectId());
+        assertEquals("box_1_copy", model.getSlides().get(1).getPageElements().get(0).getObjectId());
+        assertEquals("box_1", model.getSlides().get(0).getPageElements().get(0).getObjectId(), "Source slide must be untouched");
+        assertFalse(model.isStale());
+    }
+
+    @Test
+    void testDuplicateWithoutFullMappingMarksStale() {
+        model.apply(new Request().setDuplicateObject(new DuplicateObjectRequest().setObjectId("slide_1")));
+
+        assertTrue(model.isStale());
+    }
+
+    @Test
+    void testDeleteSlide() {
+        model.apply(new Request().setDeleteObject(new DeleteObjectRequest().setObjectId("slide_1")));
+
+        assertTrue(model.getSlides().isEmpty());
+        assertFalse(model.isStale());
+    }
+
+    @Test
+    void testDeleteUnknownObjectMarksStale() {
+        model.apply(new Request().setDeleteObject(new DeleteObjectRequest().setObjectId("missing")));
+
+        assertEquals(1, model.getSlides().size());
+        assertTrue(model.isStale());
+    }
+
+    @Test
+    void testTextEditOfUnknownObjectMarksStale() {
+        model.apply(new Request().setInsertText(new InsertTextRequest().setObjectId("missing").setText("World")));
+        assertTrue(model.isStale());
+
+        PresentationModel deleteModel = new PresentationModel(new Presentation().setPresentationId("presentation")
+                .setSlides(new ArrayList<>(List.of(new Page().setObjectId("slide_1").setPageElements(new ArrayList<>())))));
+        deleteModel.apply(new Request().setDeleteText(new DeleteTextRequest().setObjectId("missing").setTextRange(new Range().setType("ALL"))));
+        assertTrue(deleteModel.isStale());
+    }
+
+    @Test
+    void testTextEditOfMissingTableCellMarksStale() {
+        PageElement table = new PageElement().setObjectId("table_1").setTable(new Table()
+                .setTableRows(List.of(new TableRow().setTableCells(List.of(new TableCell())))));
+        model.getSlides().get(0).getPageElements().add(table);
+
+        model.apply(new Request().setInsertText(new InsertTextRequest().setObjectId("table_1").setText("World")
+                .setCellLocation(new TableCellLocation().setRowIndex(3).setColumnIndex(0))));
+
+        assertTrue(model.isStale());
+    }
+
+    @Test
+    void testReplaceText() {
+        model.apply(List.of(
+            new Request().setDeleteText(new DeleteTextRequest().setObjectId("box_1").setTextRange(new Range().setType("ALL"))),
+            new Request().setInsertText(new InsertTextRequest().setObjectId("box_1").setText("World").setInsertionIndex(0))));
+
+        assertEquals("World\n", textOf(model.getSlides().get(0), 0), "The final newline is kept, as on the server");
+    }
+
+    @Test
+    void testDeleteFromIndexKeepsFinalNewline() {
+        model.apply(new Request().setDeleteText(new DeleteTextRequest().setObjectId("box_1")
+                .setTextRange(new Range().setType("FROM_START_INDEX").setStartIndex(2))));
+
+        assertEquals("He\n", textOf(model.getSlides().get(0), 0));
+    }
+
+    @Test
+    void testDeleteFixedRange() {
+        model.apply(new Request().setDeleteText(new DeleteTextRequest().setObjectId("box_1")
+                .setTextRange(new Range().setType("FIXED_RANGE").setStartIndex(1).setEndIndex(3))));
+
+        assertEquals("Hlo\n", textOf(model.getSlides().get(0), 0));
+    }
+
+    @Test
+    void testReplaceAllText() {
+        model.apply(new Request().setReplaceAllText(new ReplaceAllTextRequest()
+                .setContainsText(new SubstringMatchCriteria().setText("ll").setMatchCase(true))
+                .setReplaceText("LL")));
+
+        assertEquals("HeLLo\n", textOf(model.getSlides().get(0), 0));
+        assertEquals("HeLLo\n", model.getTextIndex().getTextElements("slide_1").values().iterator().next());
+    }
+
+    @Test
+    void testReplaceAllTextOnOtherPageIsIgnored() {
+        model.apply(new Request().setReplaceAllText(new ReplaceAllTextRequest()
+                .setContainsText(new SubstringMatchCriteria().setText("ll").setMatchCase(true))
+                .setReplaceText("LL")
+                .setPageObjectIds(List.of("slide_2"))));
+
+        assertEquals("Hello\n", textOf(model.getSlides().get(0), 0));
+    }
+
+    @Test
+    void testUnsupportedRequestMarksStale() {
+        model.apply(new Request().setCreateSlide(new CreateSlideRequest()));
+
+        assertTrue(model.isStale());
+    }
+
+    @Test
+    void testProjectionWithoutTextFailsClearly() {
+        PresentationModel idsOnly = new PresentationModel(new Presentation()
+                .setPresentationId("presentation")
+                .setSlides(new ArrayList<>(List.of(new Page().setObjectId("slide_1")))), PresentationProjection.OBJECT_IDS);
+
+        IllegalStateException e = assertThrows(IllegalStateException.class, () -> idsOnly.requireText("findPlaceholder"));
+        assertTrue(e.getMessage().contains("OBJECT_IDS"));
+        assertDoesNotThrow(() -> model.requireText("findPlaceholder"));
+    }
+}
@@ -0,0 +1,79 @@
+package org.fcnabc.autoppt.google;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Optional;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import com.google.api.services.slides.v1.model.Page;
+import com.google.api.services.slides.v1.model.Presentation;
+
+import org.fcnabc.autoppt.google.models.PresentationProjection;
+
+class PresentationSnapshotCacheTest {
+
+    @TempDir
+    Path tempDir;
+
+    private PresentationSnapshotCache cache;
+    private Presentation presentation;
+
+    @BeforeEach
+    void setUp() {
+        cache = new PresentationSnapshotCache(tempDir);
+        presentation = new Presentation()
+                .setPresentationId("presentation_1")
+                .setRevisionId("rev_1")
+                .setSlides(List.of(new Page().setObjectId("slide_1")));
+    }
+
+    @Test
+    void testLoadReturnsSnapshotForMatchingRevision() {
+        cache.save(presentation, PresentationProjection.FULL);
+
+        Optional<Presentation> loaded = cache.load("presentation_1", "rev_1", PresentationProjection.FULL);
+
+        assertTrue(loaded.isPresent());
+        assertEquals("slide_1", loaded.get().getSlides().get(0).getObjectId());
+    }
+
+    @Test
+    void testLoadMissesForDifferentRevision() {
+        cache.save(presentation, PresentationProjection.FULL);
+
+        assertTrue(cache.load("presentation_1", "rev_2", PresentationProjection.FULL).isEmpty());
+    }
+
+    @Test
+    void testLoadMissesWithoutSnapshot() {
+        assertTrue(cache.load("presentation_1", "rev_1", PresentationProjection.FULL).isEmpty());
+    }
+
+    @Test
+    void testInvalidateRemovesSnapshot() {
+        cache.save(presentation, PresentationProjection.FULL);
+        cache.invalidate("presentation_1");
+
+        assertTrue(cache.load("presentation_1", "rev_1", PresentationProjection.FULL).isEmpty());
+    }
+
+    @Test
+    void testPresentationWithoutRevisionIsNotCached() {
+        cache.save(presentation.setRevisionId(null), PresentationProjection.FULL);
+
+        assertTrue(cache.load("presentation_1", "rev_1", PresentationProjection.FULL).isEmpty());
+    }
+
+    @Test
+    void testSnapshotsAreKeptPerProjection() {
+        cache.save(presentation, PresentationProjection.OBJECT_IDS);
+
+        assertTrue(cache.load("presentation_1", "rev_1", PresentationProjection.FULL).isEmpty());
+        assertTrue(cache.load("presentation_1", "rev_1", PresentationProjection.OBJECT_IDS).isPresent());
+    }
+}
@@ -0,0 +1,112 @@
+package org.fcnabc.autoppt.google;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.google.api.services.slides.v1.model.DeleteObjectRequest;
+import com.google.api.services.slides.v1.model.DeleteTextRequest;
+import com.google.api.services.slides.v1.model.DuplicateObjectRequest;
+import com.google.api.services.slides.v1.model.InsertTextRequest;
+import com.google.api.services.slides.v1.model.Page;
+import com.google.api.services.slides.v1.model.PageElement;
+import com.google.api.services.slides.v1.model.Presentation;
+import com.google.api.services.slides.v1.model.Range;
+import com.google.api.services.slides.v1.model.Request;
+import com.google.api.services.slides.v1.model.Shape;
+import com.google.api.services.slides.v1.model.Table;
+import com.google.api.services.slides.v1.model.TableCell;
+import com.google.api.services.slides.v1.model.TableRow;
+import com.google.api.services.slides.v1.model.TextContent;
+import com.google.api.services.slides.v1.model.TextElement;
+import com.google.api.services.slides.v1.model.TextRun;
+
+import org.fcnabc.autoppt.google.models.PlaceholderLocation;
+import org.fcnabc.autoppt.google.models.SlideObject;
+
+class PresentationTextIndexTest {
+
+    private PresentationModel model;
+
+    private static TextContent text(String... runs) {
+        List<TextElement> elements = new ArrayList<>();
+        for (String run : runs) {
+            elements.add(new TextElement().setTextRun(new TextRun().setContent(run)));
+        }
+        return new TextContent().setTextElements(elements);
+    }
+
+    private static PageElement textBox(String id, String... runs) {
+        return new PageElement().setObjectId(id).setShape(new Shape().setText(text(runs)));
+    }
+
+    private static PageElement table(String id, String cellText) {
+        TableRow row = new TableRow().setTableCells(List.of(new TableCell().setText(text(cellText)), new TableCell()));
+        return new PageElement().setObjectId(id).setTable(new Table().setTableRows(List.of(row)));
+    }
+
+    @BeforeEach
+    void setUp() {
+        Page title = new Page().setObjectId("slide_1").setPageElements(new ArrayList<>(List.of(
+                textBox("title", "{{TITLE}}", " - ", "{{DATE}}\n"),
+                table("table", "{{DATE}}"))));
+        Page verse = new Page().setObjectId("slide_2").setPageElements(new ArrayList<>(List.of(
+                textBox("verse", "{{VERSE}}\n"))));
+        model = new PresentationModel(new Presentation()
+                .setPresentationId("presentation")
+                .setSlides(new ArrayList<>(List.of(title, verse))));
+    }
+
+    @Test
+    void testTextElementsConcatenateRuns() {
+        Map<SlideObject, String> textElements = model.getTextIndex().getTextElements("slide_1");
+
+        assertEquals("{{TITLE}} - {{DATE}}\n", textElements.get(new SlideObject("title")));
+        assertEquals("{{DATE}}", textElements.get(new SlideObject("table", 0, 0)));
+        assertEquals(2, textElements.size(), "Empty table cells are not indexed");
+    }
+
+    @Test
+    void testPlaceholdersAcrossSlides() {
+        PresentationTextIndex index = model.getTextIndex();
+
+        assertEquals(Set.of("{{TITLE}}", "{{DATE}}", "{{VERSE}}"), index.getPlaceholderTokens());
+        assertEquals(List.of(
+                new PlaceholderLocation("slide_1", new SlideObject("title")),
+                new PlaceholderLocation("slide_1", new SlideObject("table", 0, 0))),
+            index.findPlaceholder("{{DATE}}"));
+        assertTrue(index.findPlaceholder("{{MISSING}}").isEmpty());
+    }
+
+    @Test
+    void testIndexFollowsTextEdits() {
+        model.apply(List.of(
+            new Request().setDeleteText(new DeleteTextRequest().setObjectId("verse").setTextRange(new Range().setType("ALL"))),
+            new Request().setInsertText(new InsertTextRequest().setObjectId("verse").setText("John 3:16").setInsertionIndex(0))));
+
+        assertTrue(model.getTextIndex().findPlaceholder("{{VERSE}}").isEmpty());
+        assertEquals("John 3:16\n", model.getTextIndex().getTextElements("slide_2").get(new SlideObject("verse")),
+            "Deleting ALL text keeps the final newline");
+    }
+
+    @Test
+    void testIndexFollowsDuplicateAndDelete() {
+        model.apply(new Request().setDuplicateObject(new DuplicateObjectRequest()
+                .setObjectId("slide_2")
+                .setObjectIds(Map.of("slide_2", "slide_3", "verse", "verse_copy"))));
+
+        assertEquals(2, model.getTextIndex().findPlaceholder("{{VERSE}}").size());
+
+        model.apply(new Request().setDeleteObject(new DeleteObjectRequest().setObjectId("slide_2")));
+
+        assertEquals(List.of(new PlaceholderLocation("slide_3", new SlideObject("verse_copy"))),
+            model.getTextIndex().findPlaceholder("{{VERSE}}"));
+        assertTrue(model.getTextIndex().getTextElements("slide_2").isEmpty());
+    }
+}
@@ -0,0 +1,209 @@
+package org.fcnabc.autoppt.hymns;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.msgpack.core.MessageBufferPacker;
+import org.msgpack.core.MessagePack;
+import org.msgpack.core.MessageUnpacker;
+
+import com.google.api.client.util.DateTime;
+
+import org.fcnabc.autoppt.hymns.models.Hymn;
+import org.fcnabc.autoppt.hymns.models.HymnCollection;
+
+/**
+ * A whole hymn library in one file. A fixed header (magic, format version, index length) is followed by a MessagePack
+ * index of each hymn's offset, length and last update time, then by the hymns, each a MessagePack array of its name
+ * and verses. The file is memory-mapped when opened and a hymn is only decoded when it is read.
+ * Windows cannot replace or delete a file while it is mapped, and a mapping is only released when the bundle is garbage
+ * collected, so a new bundle is always written to a new file rather than over an open one.
+ * Strings are packed with msgpack-core, which always uses UTF-8; the Jackson MessagePack parser decodes them with the
+ * platform charset, which garbles Chinese hymns on systems where that is not UTF-8.
+ */
+public class HymnBundle {
+    private static final int MAGIC = 0x48594D42; // "HYMB"
+    private static final int FORMAT_VERSION = 1;
+    private static final int HEADER_SIZE = 12;
+
+    private record IndexEntry(long offset, int length, long lastUpdated) {}
+
+    private final Path file;
+    private final MappedByteBuffer buffer;
+    private final int dataStart;
+    private final Instant lastUpdated;
+    private final Map<String, IndexEntry> index;
+
+    private HymnBundle(Path file, MappedByteBuffer buffer, int dataStart, Instant lastUpdated, Map<String, IndexEntry> index) {
+        this.file = file;
+        this.buffer = buffer;
+        this.dataStart = dataStart;
+        this.lastUpdated = lastUpdated;
+        this.index = index;
+    }
+
+    /**
+     * Writes the collection as a bundle. hymnTimestamps holds each hymn's last update time. The file is written to a
+     * temporary sibling and moved into place, so a crash never leaves a partial bundle; it must not be an open bundle.
+     */
+    public static void write(Path file, HymnCollection collection, Map<String, DateTime> hymnTimestamps) throws IOException {
+        Map<String, byte[]> encoded = new LinkedHashMap<>();
+        for (Map.Entry<String, Hymn> hymn : collection.hymns().entrySet()) {
+            encoded.put(hymn.getKey(), encode(hymn.getValue()));
+        }
+
+        byte[] indexBytes;
+        try (MessageBufferPacker packer = MessagePack.newDefaultBufferPacker()) {
+            packer.packLong(collection.lastUpdated().toEpochMilli());
+            packer.packMapHeader(encoded.size());
+            long offset = 0;
+            for (Map.Entry<String, byte[]> hymn : encoded.entrySet()) {
+                DateTime timestamp = hymnTimestamps.get(hymn.getKey());
+                packer.packString(hymn.getKey());
+                packer.packArrayHeader(3);
+                packer.packLong(offset);
+                packer.packInt(hymn.getValue().length);
+                packer.packLong(timestamp == null ? 0 : timestamp.getValue());
+                offset += hymn.getValue().length;
+            }
+            indexBytes = packer.toByteArray();
+        }
+
+        Path tempFile = file.resolveSibling(file.getFileName() + ".tmp");
+        try {
+            try (FileChannel channel = FileChannel.open(tempFile,
+                    StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+                ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).putInt(MAGIC).putInt(FORMAT_VERSION).putInt(indexBytes.length);
+                writeFully(channel, header.flip());
+                writeFully(channel, ByteBuffer.wrap(indexBytes));
+                for (byte[] hymn : encoded.values()) {
+                    writeFully(channel, ByteBuffer.wrap(hymn));
+                }
+            }
+            Files.move(tempFile, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(tempFile);
+        }
+    }
+
+    /**
+     * Memory-maps a bundle and reads its index. Where the platform allows it, the mapping stays valid after the file
+     * is deleted.
+     */
+    public static HymnBundle open(Path file) throws IOException {
+        MappedByteBuffer buffer;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+        if (buffer.capacity() < HEADER_SIZE || buffer.getInt(0) != MAGIC) {
+            throw new IOException("Not a hymn bundle: " + file);
+        }
+        if (buffer.getInt(4) != FORMAT_VERSION) {
+            throw new IOException("Unsupported hymn bundle version " + buffer.getInt(4) + ": " + file);
+        }
+        int indexLength = buffer.getInt(8);
+        int dataStart = HEADER_SIZE + indexLength;
+        if (indexLength < 0 || dataStart > buffer.capacity()) {
+            throw new IOException("Corrupt hymn bundle index: " + file);
+        }
+
+        // The index is copied to the heap, since msgpack-core needs internal JDK access to read direct buffers
+        byte[] indexBytes = new byte[indexLength];
+        buffer.get(HEADER_SIZE, indexBytes);
+        Map<String, IndexEntry> index = new HashMap<>();
+        Instant lastUpdated;
+        try (MessageUnpacker unpacker = MessagePack.newDefaultUnpacker(indexBytes)) {
+            lastUpdated = Instant.ofEpochMilli(unpacker.unpackLong());
+            int size = unpacker.unpackMapHeader();
+            for (int i = 0; i < size; i++) {
+                String hymnName = unpacker.unpackString();
+                unpacker.unpackArrayHeader();
+                IndexEntry entry = new IndexEntry(unpacker.unpackLong(), unpacker.unpackInt(), unpacker.unpackLong());
+                if (entry.offset() < 0 || dataStart + entry.offset() + entry.length() > buffer.capacity()) {
+                    throw new IOException("Hymn '" + hymnName + "' lies outside the bundle: " + file);
+                }
+                index.put(hymnName, entry);
+            }
+        }
+        return new HymnBundle(file, buffer, dataStart, lastUpdated, Map.copyOf(index));
+    }
+
+    public Path file() {
+        return file;
+    }
+
+    public Instant lastUpdated() {
+        return lastUpdated;
+    }
+
+    public Set<String> getHymnNames() {
+        return index.keySet();
+    }
+
+    /**
+     * Returns true if the bundle holds the hymn as of the given update time or later.
+     */
+    public boolean isCurrent(String hymnName, DateTime lastUpdated) {
+        IndexEntry entry = index.get(hymnName);
+        return entry != null && entry.lastUpdated() >= lastUpdated.getValue();
+    }
+
+    /**
+     * Decodes a single hymn, or returns null if the bundle does not hold it.
+     */
+    public Hymn getHymn(String hymnName) throws IOException {
+        IndexEntry entry = index.get(hymnName);
+        if (entry == null) return null;
+        byte[] encoded = new byte[entry.length()];
+        buffer.get(dataStart + (int) entry.offset(), encoded);
+        try (MessageUnpacker unpacker = MessagePack.newDefaultUnpacker(encoded)) {
+            unpacker.unpackArrayHeader();
+            String name = unpacker.unpackString();
+            int verseCount = unpacker.unpackArrayHeader();
+            List<String> verses = new ArrayList<>(verseCount);
+            for (int i = 0; i < verseCount; i++) {
+                verses.add(unpacker.unpackString());
+            }
+            return new Hymn(name, List.copyOf(verses));
+        }
+    }
+
+    public HymnCollection toCollection() throws IOException {
+        Map<String, Hymn> hymns = new HashMap<>();
+        for (String hymnName : index.keySet()) {
+            hymns.put(hymnName, getHymn(hymnName));
+        }
+        return new HymnCollection(lastUpdated, hymns);
+    }
+
+    private static byte[] encode(Hymn hymn) throws IOException {
+        try (MessageBufferPacker packer = MessagePack.newDefaultBufferPacker()) {
+            packer.packArrayHeader(2);
+            packer.packString(hymn.hymnName());
+            packer.packArrayHeader(hymn.verses().size());
+            for (String verse : hymn.verses()) {
+                packer.packString(verse);
+            }
+            return packer.toByteArray();
+        }
+    }
+
+    private static void writeFully(FileChannel channel, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+    }
+}
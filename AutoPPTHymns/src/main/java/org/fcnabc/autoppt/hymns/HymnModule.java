@@ -1,14 +1,39 @@
 package org.fcnabc.autoppt.hymns;
 
+import java.nio.file.Path;
+
 import com.google.inject.AbstractModule;
+import com.google.inject.Provides;
 import com.google.inject.Singleton;
+import com.google.inject.name.Named;
 
+import org.fcnabc.autoppt.hymns.models.HymnSyncConfig;
 import org.fcnabc.autoppt.io.FileStore;
 
 public class HymnModule extends AbstractModule {
+    private static final String HYMN_CACHE_FOLDER = "hymns";
+
+    private final HymnSyncConfig syncConfig;
+
+    public HymnModule() {
+        this(HymnSyncConfig.defaults());
+    }
+
+    public HymnModule(HymnSyncConfig syncConfig) {
+        this.syncConfig = syncConfig;
+    }
+
     @Override
     protected void configure() {
+        bind(HymnSyncConfig.class).toInstance(syncConfig);
         bind(HymnStore.class).in(Singleton.class);
         bind(FileStore.class).in(Singleton.class);
     }
+
+    @Provides
+    @Singleton
+    @Named("FileDirectory")
+    Path provideFileDirectory(@Named("AppDirectory") Path appDirectory) {
+        return appDirectory.resolve(HYMN_CACHE_FOLDER);
+    }
 }
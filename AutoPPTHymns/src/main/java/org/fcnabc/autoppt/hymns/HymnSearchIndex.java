@@ -0,0 +1,341 @@
+package org.fcnabc.autoppt.hymns;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import org.msgpack.core.MessageBufferPacker;
+import org.msgpack.core.MessagePack;
+import org.msgpack.core.MessageUnpacker;
+
+import com.google.api.client.util.DateTime;
+
+import org.fcnabc.autoppt.hymns.models.Hymn;
+import org.fcnabc.autoppt.hymns.models.HymnSearchResult;
+
+/**
+ * An inverted index over hymn names and verses. Latin-script text is split into words; Chinese, Japanese and Korean
+ * text has no word boundaries, so it is indexed as single characters and overlapping character pairs.
+ * The last word of a query also matches words it is a prefix of, for search-as-you-type, and a word with no exact
+ * match falls back to words within edit distance 1, or 2 for long words. Terms are weighted by how rare they are and
+ * name matches count NAME_WEIGHT times as much as verse matches.
+ * Only each hymn's term counts are persisted; the postings are rebuilt from them when the index is loaded.
+ */
+public class HymnSearchIndex {
+    private static final int FORMAT_VERSION = 1;
+    private static final int NAME_WEIGHT = 3;
+    private static final int MAX_PREFIX_EXPANSIONS = 50;
+    private static final int MIN_FUZZY_LENGTH = 4;
+    private static final int LONG_WORD_LENGTH = 8;
+    private static final double PREFIX_FACTOR = 0.8;
+    private static final double FUZZY_FACTOR = 0.5;
+
+    private record Token(String text, boolean cjk) {}
+
+    private record IndexedHymn(long lastUpdated, Map<String, Integer> termWeights) {}
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Map<String, IndexedHymn> hymns = new HashMap<>();
+    // Sorted so prefix queries are a range scan
+    private final TreeMap<String, Map<String, Integer>> postings = new TreeMap<>();
+    // Latin-script terms by length, so fuzzy matching only compares terms of a similar length
+    private final Map<Integer, Set<String>> wordsByLength = new HashMap<>();
+
+    public static HymnSearchIndex load(Path file) throws IOException {
+        HymnSearchIndex index = new HymnSearchIndex();
+        try (MessageUnpacker unpacker = MessagePack.newDefaultUnpacker(Files.readAllBytes(file))) {
+            int version = unpacker.unpackInt();
+            if (version != FORMAT_VERSION) {
+                throw new IOException("Unsupported hymn search index version " + version + ": " + file);
+            }
+            int hymnCount = unpacker.unpackMapHeader();
+            for (int i = 0; i < hymnCount; i++) {
+                String hymnName = unpacker.unpackString();
+                unpacker.unpackArrayHeader();
+                long lastUpdated = unpacker.unpackLong();
+                int termCount = unpacker.unpackMapHeader();
+                Map<String, Integer> termWeights = new HashMap<>(termCount);
+                for (int j = 0; j < termCount; j++) {
+                    termWeights.put(unpacker.unpackString(), unpacker.unpackInt());
+                }
+                index.put(hymnName, new IndexedHymn(lastUpdated, termWeights));
+            }
+        }
+        return index;
+    }
+
+    /**
+     * Saves the index to a temporary sibling and moves it into place.
+     */
+    public void save(Path file) throws IOException {
+        byte[] bytes;
+        lock.readLock().lock();
+        try (MessageBufferPacker packer = MessagePack.newDefaultBufferPacker()) {
+            packer.packInt(FORMAT_VERSION);
+            packer.packMapHeader(hymns.size());
+            for (Map.Entry<String, IndexedHymn> hymn : hymns.entrySet()) {
+                packer.packString(hymn.getKey());
+                packer.packArrayHeader(2);
+                packer.packLong(hymn.getValue().lastUpdated());
+                packer.packMapHeader(hymn.getValue().termWeights().size());
+                for (Map.Entry<String, Integer> term : hymn.getValue().termWeights().entrySet()) {
+                    packer.packString(term.getKey());
+                    packer.packInt(term.getValue());
+                }
+            }
+            bytes = packer.toByteArray();
+        } finally {
+            lock.readLock().unlock();
+        }
+
+        Path tempFile = file.resolveSibling(file.getFileName() + ".tmp");
+        try {
+            Files.write(tempFile, bytes);
+            Files.move(tempFile, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(tempFile);
+        }
+    }
+
+    /**
+     * Indexes a hymn, replacing any earlier version of it.
+     */
+    public void index(String hymnName, DateTime lastUpdated, Hymn hymn) {
+        Map<String, Integer> termWeights = new HashMap<>();
+        for (Token token : tokenize(hymnName, false)) {
+            termWeights.merge(token.text(), NAME_WEIGHT, Integer::sum);
+        }
+        for (String verse : hymn.verses()) {
+            for (Token token : tokenize(verse, false)) {
+                termWeights.merge(token.text(), 1, Integer::sum);
+            }
+        }
+
+        lock.writeLock().lock();
+        try {
+            removeLocked(hymnName);
+            put(hymnName, new IndexedHymn(lastUpdated.getValue(), termWeights));
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void remove(String hymnName) {
+        lock.writeLock().lock();
+        try {
+            removeLocked(hymnName);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Returns true if the hymn is indexed as of the given update time.
+     */
+    public boolean isCurrent(String hymnName, DateTime lastUpdated) {
+        lock.readLock().lock();
+        try {
+            IndexedHymn indexed = hymns.get(hymnName);
+            return indexed != null && indexed.lastUpdated() == lastUpdated.getValue();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public Set<String> getIndexedHymns() {
+        lock.readLock().lock();
+        try {
+            return Set.copyOf(hymns.keySet());
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Returns up to limit hymns matching the query, best first.
+     */
+    public List<HymnSearchResult> search(String query, int limit) {
+        List<Token> queryTokens = tokenize(query, true);
+        if (queryTokens.isEmpty() || limit <= 0) return List.of();
+
+        Map<String, Double> scores = new HashMap<>();
+        Map<String, Integer> matchedTerms = new HashMap<>();
+        lock.readLock().lock();
+        try {
+            for (int i = 0; i < queryTokens.size(); i++) {
+                Token token = queryTokens.get(i);
+                boolean last = i == queryTokens.size() - 1;
+                Map<String, Double> termScores = new HashMap<>();
+                for (Map.Entry<String, Double> expansion : expand(token, last).entrySet()) {
+                    Map<String, Integer> posting = postings.get(expansion.getKey());
+                    double idf = Math.log(1 + (double) hymns.size() / posting.size());
+                    posting.forEach((hymnName, weight) ->
+                            termScores.merge(hymnName, expansion.getValue() * weight * idf, Math::max));
+                }
+                termScores.forEach((hymnName, score) -> {
+                    scores.merge(hymnName, score, Double::sum);
+                    matchedTerms.merge(hymnName, 1, Integer::sum);
+                });
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+
+        return scores.entrySet().stream()
+                .map(entry -> new HymnSearchResult(entry.getKey(), matchedTerms.get(entry.getKey()), entry.getValue()))
+                .sorted(Comparator.comparingInt(HymnSearchResult::matchedTerms).reversed()
+                        .thenComparing(Comparator.comparingDouble(HymnSearchResult::score).reversed())
+                        .thenComparing(HymnSearchResult::hymnName))
+                .limit(limit)
+                .toList();
+    }
+
+    // --------------------------------------------------------------------
+
+    /**
+     * Maps a query token to the indexed terms it matches and the factor each match is scored with.
+     */
+    private Map<String, Double> expand(Token token, boolean last) {
+        Map<String, Double> expansions = new HashMap<>();
+        if (postings.containsKey(token.text())) {
+            expansions.put(token.text(), 1.0);
+        }
+        if (token.cjk()) return expansions;
+
+        if (last) {
+            for (String term : postings.subMap(token.text(), false, token.text() + Character.MAX_VALUE, false).keySet()) {
+                if (expansions.size() >= MAX_PREFIX_EXPANSIONS) break;
+                expansions.put(term, PREFIX_FACTOR);
+            }
+        }
+        if (expansions.isEmpty() && token.text().length() >= MIN_FUZZY_LENGTH) {
+            int maxDistance = token.text().length() >= LONG_WORD_LENGTH ? 2 : 1;
+            int length = token.text().length();
+            for (int candidateLength = length - maxDistance; candidateLength <= length + maxDistance; candidateLength++) {
+                for (String term : wordsByLength.getOrDefault(candidateLength, Set.of())) {
+                    if (editDistance(token.text(), term, maxDistance) <= maxDistance) {
+                        expansions.put(term, FUZZY_FACTOR);
+                    }
+                }
+            }
+        }
+        return expansions;
+    }
+
+    private void put(String hymnName, IndexedHymn indexed) {
+        hymns.put(hymnName, indexed);
+        indexed.termWeights().forEach((term, weight) ->
+                postings.computeIfAbsent(term, t -> {
+                    if (!isCjk(t.codePointAt(0))) {
+                        wordsByLength.computeIfAbsent(t.length(), l -> new HashSet<>()).add(t);
+                    }
+                    return new HashMap<>();
+                }).put(hymnName, weight));
+    }
+
+    private void removeLocked(String hymnName) {
+        IndexedHymn indexed = hymns.remove(hymnName);
+        if (indexed == null) return;
+        for (String term : indexed.termWeights().keySet()) {
+            Map<String, Integer> posting = postings.get(term);
+            posting.remove(hymnName);
+            if (posting.isEmpty()) {
+                postings.remove(term);
+                Set<String> words = wordsByLength.get(term.length());
+                if (words != null && words.remove(term) && words.isEmpty()) wordsByLength.remove(term.length());
+            }
+        }
+    }
+
+    /**
+     * Splits text into lowercase words and CJK characters and character pairs. For queries, a CJK run longer than one
+     * character only yields its pairs, which are more selective than single characters.
+     */
+    private static List<Token> tokenize(String text, boolean query) {
+        String normalized = Normalizer.normalize(text, Normalizer.Form.NFKC).toLowerCase(Locale.ROOT);
+        List<Token> tokens = new ArrayList<>();
+        StringBuilder word = new StringBuilder();
+        List<String> cjkRun = new ArrayList<>();
+
+        for (int i = 0; i < normalized.length(); ) {
+            int codePoint = normalized.codePointAt(i);
+            i += Character.charCount(codePoint);
+            if (isCjk(codePoint)) {
+                flushWord(word, tokens);
+                cjkRun.add(Character.toString(codePoint));
+            } else if (Character.isLetterOrDigit(codePoint)) {
+                flushCjkRun(cjkRun, tokens, query);
+                word.appendCodePoint(codePoint);
+            } else if (codePoint != '\'' && codePoint != '’') {
+                // Apostrophes are dropped rather than splitting, so "God's" indexes as "gods" and not "god" and "s"
+                flushWord(word, tokens);
+                flushCjkRun(cjkRun, tokens, query);
+            }
+        }
+        flushWord(word, tokens);
+        flushCjkRun(cjkRun, tokens, query);
+        return tokens;
+    }
+
+    private static void flushWord(StringBuilder word, List<Token> tokens) {
+        if (word.isEmpty()) return;
+        tokens.add(new Token(word.toString(), false));
+        word.setLength(0);
+    }
+
+    private static void flushCjkRun(List<String> run, List<Token> tokens, boolean query) {
+        if (run.isEmpty()) return;
+        if (!query || run.size() == 1) {
+            run.forEach(character -> tokens.add(new Token(character, true)));
+        }
+        for (int i = 0; i + 1 < run.size(); i++) {
+            tokens.add(new Token(run.get(i) + run.get(i + 1), true));
+        }
+        run.clear();
+    }
+
+    private static boolean isCjk(int codePoint) {
+        Character.UnicodeScript script = Character.UnicodeScript.of(codePoint);
+        return script == Character.UnicodeScript.HAN
+                || script == Character.UnicodeScript.HIRAGANA
+                || script == Character.UnicodeScript.KATAKANA
+                || script == Character.UnicodeScript.HANGUL;
+    }
+
+    /**
+     * Levenshtein distance, or maxDistance + 1 as soon as it is known to exceed maxDistance.
+     */
+    private static int editDistance(String a, String b, int maxDistance) {
+        int[] previous = new int[b.length() + 1];
+        int[] current = new int[b.length() + 1];
+        for (int j = 0; j <= b.length(); j++) previous[j] = j;
+
+        for (int i = 1; i <= a.length(); i++) {
+            current[0] = i;
+            int rowMin = current[0];
+            for (int j = 1; j <= b.length(); j++) {
+                int cost = a.charAt(i - 1) == b.charAt(j - 1) ? 0 : 1;
+                current[j] = Math.min(Math.min(current[j - 1] + 1, previous[j] + 1), previous[j - 1] + cost);
+                rowMin = Math.min(rowMin, current[j]);
+            }
+            if (rowMin > maxDistance) return maxDistance + 1;
+            int[] swap = previous;
+            previous = current;
+            current = swap;
+        }
+        return previous[b.length()];
+    }
+}
@@ -1,88 +1,304 @@
 package org.fcnabc.autoppt.hymns;
 
+import java.util.ArrayList;
+import java.util.Comparator;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Map;
+import java.util.Objects;
 import java.util.Set;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.nio.file.Files;
 import java.nio.file.Path;
 import java.io.IOException;
+import java.net.SocketException;
+import java.net.SocketTimeoutException;
+import java.net.UnknownHostException;
+import java.net.http.HttpTimeoutException;
+import java.nio.charset.StandardCharsets;
 import java.lang.reflect.Type;
+import java.time.Instant;
 import lombok.extern.slf4j.Slf4j;
 
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheStats;
 import com.google.gson.Gson;
 import com.google.gson.JsonSyntaxException;
 import com.google.gson.reflect.TypeToken;
+import com.google.api.client.http.HttpResponseException;
 import com.google.api.client.util.DateTime;
 import com.google.inject.Inject;
 import com.google.inject.Singleton;
 import com.google.inject.name.Named;
 
 import org.fcnabc.autoppt.google.GoogleDrive;
+import org.fcnabc.autoppt.google.models.DriveChangeSet;
+import org.fcnabc.autoppt.google.models.DriveFileMetadata;
 import org.fcnabc.autoppt.google.models.DriveMimeType;
 import org.fcnabc.autoppt.io.FileStore;
 import org.fcnabc.autoppt.io.model.AppConfig;
 import org.fcnabc.autoppt.hymns.models.Hymn;
+import org.fcnabc.autoppt.hymns.models.HymnCacheStats;
 import org.fcnabc.autoppt.hymns.models.HymnCollection;
+import org.fcnabc.autoppt.hymns.models.HymnMetadata;
+import org.fcnabc.autoppt.hymns.models.HymnSearchResult;
+import org.fcnabc.autoppt.hymns.models.HymnSyncConfig;
+import org.fcnabc.autoppt.hymns.models.HymnSyncEvent;
 
+/**
+ * Local cache of hymn texts backed by Google Drive. A manifest (hymnCacheTimestamps.json) maps each hymn to its
+ * Drive file and last update time. After the first full sync, later syncs only read the Drive changes feed since the
+ * page token persisted in the app directory, so their cost scales with the number of edits rather than the library size.
+ * Construction only reads the local manifest and queues a sync on a background thread.
+ * Hymn texts are also packed into one memory-mapped HymnBundle, so a cold start reads hymns from a single file instead
+ * of one file per hymn. If AppConfig.HymnBundleGoogleFileId is set, sync pulls that bundle from Drive and only
+ * downloads the hymn files the bundle does not cover. The bundle is rebuilt, and uploaded to Drive, at the end of a sync
+ * that left it behind the manifest, so edits made through setHymn are batched into the next sync rather than each
+ * rewriting the whole library. Each bundle version gets a new file name, since Windows cannot replace a mapped file;
+ * older versions are deleted once they can be.
+ * The manifest is held as an immutable snapshot. Readers take the current snapshot without locking; sync and setHymn
+ * publish a new snapshot atomically, so a reader never sees a half-applied sync or bulk import.
+ * Lyrics are searchable through a HymnSearchIndex saved next to the cache, which sync and setHymn update for the
+ * hymns they changed rather than rebuilding it.
+ */
 @Slf4j
 @Singleton
 public class HymnStore {
     private static final String HYMN_CACHE_TIMESTAMPS_FILE = "hymnCacheTimestamps.json";
+    private static final String HYMN_CHANGES_TOKEN_FILE = "hymnChangesPageToken.txt";
+    private static final Gson GSON = new Gson();
+    private static final int PARSED_HYMN_CACHE_SIZE = 200;
+    // Bundle versions are named hymnBundle-<version>.msgpack; hymnBundle.msgpack is the unversioned name of older releases
+    private static final Pattern HYMN_BUNDLE_FILE = Pattern.compile("hymnBundle(?:-(\\d+))?\\.msgpack");
+    private static final String HYMN_SEARCH_INDEX_FILE = "hymnSearchIndex.msgpack";
 
     private FileStore cacheStore;
     private GoogleDrive googleDrive;
+    private HymnSyncConfig syncConfig;
     private String hymnTimestampFileID;
-    private Map<String, HymnCollection> hymnCacheTimestampsCloud;
-    private Map<String, HymnCollection> hymnCacheTimestampsLocal;
+    private Path changesTokenPath;
+    private String hymnBundleFileID;
+    private Path cacheDirectory;
+    private Path searchIndexPath;
+    private final HymnSearchIndex searchIndex;
+    private Map<String, HymnMetadata> hymnCacheTimestampsCloud;
+    private final AtomicReference<Map<String, HymnMetadata>> hymnCacheTimestampsLocal = new AtomicReference<>(Map.of());
+    private final Object writeLock = new Object();
+    private final Object manifestFileLock = new Object();
+    private final Object bundleLock = new Object();
+    private final AtomicReference<HymnBundle> hymnBundle = new AtomicReference<>();
+    private final Object searchIndexLock = new Object();
+    // Serializes setHymn and sync writing the same hymn's file; ReentrantLock so downloads do not pin virtual threads
+    private final Map<String, ReentrantLock> hymnFileLocks = new ConcurrentHashMap<>();
+    // Keyed by file and version: setHymn rewrites a hymn's file under the same name, so a read racing it can only cache
+    // the old text under the old version's key
+    private final Cache<ParsedHymnKey, Hymn> parsedHymns = CacheBuilder.newBuilder()
+            .maximumSize(PARSED_HYMN_CACHE_SIZE)
+            .recordStats()
+            .build();
+
+    private record ParsedHymnKey(String fileName, long lastUpdated) {}
+
+    private final ExecutorService syncExecutor = Executors.newSingleThreadExecutor(
+            Thread.ofPlatform().name("hymn-sync").daemon().factory());
+    private final List<Consumer<HymnSyncEvent>> syncListeners = new CopyOnWriteArrayList<>();
+    private final Object syncRequestLock = new Object();
+    private CompletableFuture<Void> syncFuture;
+    private CompletableFuture<Void> queuedSync;
 
     @Inject
-    public HymnStore(FileStore cacheStore, GoogleDrive googleDrive, AppConfig appConfig) throws IOException {
+    public HymnStore(
+        FileStore cacheStore,
+        GoogleDrive googleDrive,
+        AppConfig appConfig,
+        HymnSyncConfig syncConfig,
+        @Named("AppDirectory") Path appDirectory
+    ) throws IOException {
         this.cacheStore = cacheStore;
         this.googleDrive = googleDrive;
+        this.syncConfig = syncConfig;
         this.hymnTimestampFileID = appConfig.HymnStoreGoogleFileId();
+        this.changesTokenPath = appDirectory.resolve(HYMN_CHANGES_TOKEN_FILE);
+        this.hymnBundleFileID = appConfig.HymnBundleGoogleFileId();
+        this.cacheDirectory = cacheStore.getFileDirectory();
+        this.searchIndexPath = cacheDirectory.resolve(HYMN_SEARCH_INDEX_FILE);
+
+        loadLocalTimestamps();
+        openLocalBundle();
+        this.searchIndex = loadSearchIndex();
+        requestSync();
+    }
 
-        refreshCacheTimestamps();
-        syncCacheTimestamps();
+    /**
+     * Brings the local cache up to date with Google Drive, blocking until done. If a changes page token from an earlier
+     * sync exists, only the files changed since then are fetched; otherwise, or if the token is no longer valid, the
+     * whole manifest is compared.
+     */
+    public synchronized void sync() {
+        Map<String, HymnMetadata> working = new HashMap<>(hymnCacheTimestampsLocal.get());
+        fireSyncEvent(new HymnSyncEvent(HymnSyncEvent.Type.STARTED, 0, 0, null));
+        try {
+            String pageToken = readPageToken();
+            if (pageToken == null || !syncIncremental(pageToken, working)) {
+                syncFull(working);
+            }
+        } catch (RuntimeException e) {
+            fireSyncEvent(new HymnSyncEvent(HymnSyncEvent.Type.FAILED, 0, 0, null));
+            throw e;
+        }
+        fireSyncEvent(new HymnSyncEvent(HymnSyncEvent.Type.COMPLETED, 0, 0, null));
     }
 
+    /**
+     * Queues a sync on the background thread and returns a future that completes when it is done. A request made
+     * while another sync is still queued joins that sync instead of queuing a second one.
+     */
+    public CompletableFuture<Void> requestSync() {
+        synchronized (syncRequestLock) {
+            if (queuedSync != null) return queuedSync.copy();
+
+            CompletableFuture<Void> future = new CompletableFuture<>();
+            queuedSync = future;
+            syncFuture = future;
+            syncExecutor.execute(() -> {
+                synchronized (syncRequestLock) {
+                    queuedSync = null;
+                }
+                try {
+                    sync();
+                    future.complete(null);
+                } catch (RuntimeException e) {
+                    log.error("Background hymn sync failed", e);
+                    future.completeExceptionally(e);
+                }
+            });
+            return future.copy();
+        }
+    }
+
+    /**
+     * The future of the most recently requested sync.
+     */
+    public CompletableFuture<Void> getSyncFuture() {
+        synchronized (syncRequestLock) {
+            return syncFuture.copy();
+        }
+    }
+
+    public void addSyncListener(Consumer<HymnSyncEvent> listener) {
+        syncListeners.add(listener);
+    }
+
+    public void removeSyncListener(Consumer<HymnSyncEvent> listener) {
+        syncListeners.remove(listener);
+    }
+
+    /**
+     * Returns an immutable view of the hymns in the current snapshot.
+     */
     public Set<String> getAvailableHymns() {
-        return hymnCacheTimestampsLocal.keySet();
+        return hymnCacheTimestampsLocal.get().keySet();
     }
 
+    /**
+     * Returns the parsed hymn, from memory if it was read recently. Older versions of a hymn are dropped from memory
+     * when setHymn or a sync replaces its file.
+     */
     public Hymn getHymn(String hymnName) throws IOException {
-        HymnCollection cache = hymnCacheTimestampsLocal.get(hymnName);
+        HymnMetadata cache = hymnCacheTimestampsLocal.get().get(hymnName);
         if (cache == null) {
             throw new IOException("Hymn not found in local cache: " + hymnName);
         }
-        String content = cacheStore.getFileContent(cache.fileName());
-        return new Hymn(cache, List.of(content.split("\n\n")));
+        try {
+            return parsedHymns.get(new ParsedHymnKey(cache.fileName(), cache.lastUpdated().getValue()), () -> {
+                HymnBundle bundle = hymnBundle.get();
+                if (bundle != null && bundle.isCurrent(hymnName, cache.lastUpdated())) {
+                    return bundle.getHymn(hymnName);
+                }
+                return readHymnFile(cache);
+            });
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException ioException) throw ioException;
+            throw new IOException("Failed to read hymn: " + hymnName, e.getCause());
+        }
+    }
+
+    private Hymn readHymnFile(HymnMetadata metadata) throws IOException {
+        String content = cacheStore.getFileContent(metadata.fileName());
+        return new Hymn(metadata.hymnName(), List.of(content.split("\n\n")));
+    }
+
+    /**
+     * Searches hymn names and lyrics. The last word of the query also matches longer words it starts, and words with
+     * no exact match allow a typo or two.
+     */
+    public List<HymnSearchResult> searchHymns(String query, int limit) {
+        return searchIndex.search(query, limit);
     }
 
+    public HymnCacheStats getHymnCacheStats() {
+        CacheStats stats = parsedHymns.stats();
+        return new HymnCacheStats(stats.hitCount(), stats.missCount(), stats.evictionCount(), parsedHymns.size());
+    }
+
+    /**
+     * Stores a hymn locally and on Drive. Writers are serialized with each other but not with a running sync,
+     * which never replaces an entry with an older one. Writes of the hymn's file are serialized with the sync's
+     * download of it, which is skipped once this hymn is newer than the version the sync was fetching.
+     * The hymn is read from its own file until the next sync rebuilds the bundle.
+     */
     public void setHymn(String hymnName, DateTime timestamp, String content) throws IOException {
-        if (hymnCacheTimestampsLocal.containsKey(hymnName)) {
-            HymnCollection metadata = hymnCacheTimestampsLocal.get(hymnName);
-            if (timestamp.getValue() <= metadata.lastUpdated().getValue()) {
-                log.warn("Attempted to set hymn '{}' with an older or equal timestamp. Operation ignored.", hymnName);
-                return;
+        synchronized (writeLock) {
+            ReentrantLock fileLock = hymnFileLock(hymnName);
+            fileLock.lock();
+            try {
+                HymnMetadata metadata = hymnCacheTimestampsLocal.get().get(hymnName);
+                if (metadata != null) {
+                    if (timestamp.getValue() <= metadata.lastUpdated().getValue()) {
+                        log.warn("Attempted to set hymn '{}' with an older or equal timestamp. Operation ignored.", hymnName);
+                        return;
+                    }
+                    log.info("Updating existing hymn '{}' with newer timestamp: {} -> {}", hymnName, metadata.lastUpdated(), timestamp);
+                    updateHymnCache(metadata, timestamp, content);
+                } else {
+                    createNewHymnCache(hymnName, timestamp, content);
+                }
+            } finally {
+                fileLock.unlock();
             }
-            log.info("Updating existing hymn '{}' with newer timestamp: {} -> {}", hymnName, metadata.lastUpdated(), timestamp);
-            updateHymnCache(metadata, content);
-        } else {
-            createNewHymnCache(hymnName, timestamp, content);
+
+            updateSearchIndex(Set.of());
         }
     }
 
     // --------------------------------------------------------------------
 
-    private void updateHymnCache(HymnCollection currMetadata, String content) throws IOException {
+    private void updateHymnCache(HymnMetadata currMetadata, DateTime timestamp, String content) throws IOException {
         // Update local timestamp and cache file
-        HymnCollection newMetadata = new HymnCollection(currMetadata.hymnName(), currMetadata.lastUpdated(), currMetadata.fileName(), currMetadata.fileId());
-        hymnCacheTimestampsLocal.put(currMetadata.hymnName(), newMetadata);
+        HymnMetadata newMetadata = new HymnMetadata(currMetadata.hymnName(), timestamp, currMetadata.fileName(), currMetadata.fileId());
         cacheStore.setFile(currMetadata.fileName(), content);
+        publishLocalTimestamps(Map.of(currMetadata.hymnName(), newMetadata));
+        invalidateParsedHymn(currMetadata.fileName());
 
         // Update Google Drive timestamp and content file
         try {
-            googleDrive.updateFile(currMetadata.fileId(), DriveMimeType.PLAIN_TEXT, cacheStore.getFileDirectory().resolve(currMetadata.fileName()).toFile());
+            googleDrive.updateFile(currMetadata.fileId(), DriveMimeType.PLAIN_TEXT, content.getBytes(StandardCharsets.UTF_8));
         } catch (IOException e) {
             log.error("Failed to update hymn file on Google Drive for '{}': {}", currMetadata.hymnName(), e.getMessage());
             throw e;
@@ -97,20 +313,18 @@ public class HymnStore {
 
     private void createNewHymnCache(String hymnName, DateTime timestamp, String content) throws IOException {
         String fileName = "hymn_" + hymnName.replaceAll("\\s+", "_").toLowerCase() + "_" + timestamp.getValue() + ".txt";
-        Path localFilePath = cacheStore.getFileDirectory().resolve(fileName);
         cacheStore.setFile(fileName, content);
 
         String fileId;
         try {
-            fileId = googleDrive.uploadFile(fileName, DriveMimeType.PLAIN_TEXT, localFilePath.toFile());
+            fileId = googleDrive.uploadFile(fileName, DriveMimeType.PLAIN_TEXT, content.getBytes(StandardCharsets.UTF_8));
         } catch (IOException e) {
             log.error("Failed to upload new hymn file to Google Drive for '{}': {}", hymnName, e.getMessage());
             throw e;
         }
 
-        HymnCollection newMetadata = new HymnCollection(hymnName, timestamp, fileName, fileId);
-        hymnCacheTimestampsLocal.put(hymnName, newMetadata);
-
+        HymnMetadata newMetadata = new HymnMetadata(hymnName, timestamp, fileName, fileId);
+        publishLocalTimestamps(Map.of(hymnName, newMetadata));
         try {
             googleDrive.updateFile(hymnTimestampFileID, DriveMimeType.PLAIN_TEXT, cacheStore.getFileDirectory().resolve(HYMN_CACHE_TIMESTAMPS_FILE).toFile());
         } catch (IOException e) {
@@ -119,62 +333,525 @@ public class HymnStore {
         }
     }
 
-    private Map<String, HymnCollection> mapJsontoHymnCacheMap(String jsonString) {
+    private Map<String, HymnMetadata> mapJsontoHymnCacheMap(String jsonString) {
         try {
-            Gson gson = new Gson();
-            Type type = new TypeToken<Map<String, HymnCollection>>() {}.getType();
-            return gson.fromJson(jsonString, type);
+            Type type = new TypeToken<Map<String, HymnMetadata>>() {}.getType();
+            Map<String, HymnMetadata> map = GSON.fromJson(jsonString, type);
+            if (map == null) return new HashMap<>();
+            map.values().removeIf(Objects::isNull);
+            return map;
         } catch (JsonSyntaxException e) {
             log.error("Failed to parse JSON string into HymnCache map: {}", e.getMessage());
             return new HashMap<>();
         }
     }
 
-    private void refreshCacheTimestamps() {
-        if (!googleDrive.fileExists(hymnTimestampFileID)) {
-            log.error("Hymn timestamp file not found in Google Drive with ID: {}", hymnTimestampFileID);
-            hymnCacheTimestampsCloud = new HashMap<>();
-        } else {
-            try {
-                String jsonStringLive = googleDrive.downloadFile(hymnTimestampFileID);
-                hymnCacheTimestampsCloud = mapJsontoHymnCacheMap(jsonStringLive);
-            } catch (IOException e) {
-                log.error("Failed to download hymn timestamp file from Google Drive: {}", e.getMessage());
-                hymnCacheTimestampsCloud = new HashMap<>();
+    /**
+     * Compares the whole cloud manifest against the local one. The start page token is taken before the manifest is
+     * read, so edits made while syncing are picked up by the next incremental sync. The token is only saved if the
+     * manifest was read and every outdated hymn downloaded; otherwise any saved token is deleted, so the next sync is
+     * a full one again.
+     */
+    private void syncFull(Map<String, HymnMetadata> working) {
+        String startPageToken = null;
+        try {
+            startPageToken = googleDrive.getStartPageToken();
+        } catch (IOException e) {
+            log.warn("Failed to retrieve changes start page token; the next sync will be a full sync as well: {}", e.getMessage());
+        }
+
+        boolean complete = refreshCloudTimestamps();
+        syncBundle();
+        complete &= syncCacheTimestamps(working, new HashSet<>());
+        publishLocalTimestamps(working);
+        rebuildAndUploadBundle(Set.of());
+        updateSearchIndex(Set.of());
+        if (!complete) {
+            log.warn("Full hymn sync was incomplete; the next sync will be a full sync as well");
+            deletePageToken();
+        } else if (startPageToken != null) {
+            writePageToken(startPageToken);
+        }
+    }
+
+    /**
+     * Applies the Drive changes since the given page token: the manifest is only downloaded if it changed, and only
+     * hymn files that changed are downloaded again. Returns false if the changes feed could not be read.
+     * The new page token is only saved if the manifest was read and every download succeeded; otherwise the next
+     * sync replays the same changes.
+     */
+    private boolean syncIncremental(String pageToken, Map<String, HymnMetadata> working) {
+        DriveChangeSet changeSet;
+        try {
+            changeSet = googleDrive.listChanges(pageToken);
+        } catch (IOException e) {
+            log.warn("Failed to read Drive changes since token {}; falling back to a full sync: {}", pageToken, e.getMessage());
+            return false;
+        }
+
+        Set<String> changedFileIds = changeSet.changedFileIds();
+        Set<String> downloadedFileIds = new HashSet<>();
+        boolean complete = true;
+        if (hymnBundleFileID != null && changedFileIds.contains(hymnBundleFileID)) {
+            syncBundle();
+        }
+        if (changedFileIds.contains(hymnTimestampFileID)) {
+            complete = refreshCloudTimestamps() && syncCacheTimestamps(working, downloadedFileIds);
+        }
+
+        // Hymn files edited directly on Drive without a manifest update
+        Map<String, HymnMetadata> editedHymns = new HashMap<>();
+        working.forEach((hymnName, localCache) -> {
+            if (changedFileIds.contains(localCache.fileId()) && !downloadedFileIds.contains(localCache.fileId())) {
+                editedHymns.put(hymnName, localCache);
             }
+        });
+        Map<String, HymnMetadata> redownloaded = downloadHymnFiles(editedHymns);
+        complete &= redownloaded.size() == editedHymns.size();
+
+        publishLocalTimestamps(working);
+        // Re-downloaded files keep their manifest timestamp, so the bundle would otherwise still count as current
+        rebuildAndUploadBundle(redownloaded.keySet());
+        updateSearchIndex(redownloaded.keySet());
+        if (complete) {
+            writePageToken(changeSet.newStartPageToken());
+        } else {
+            log.warn("Incremental hymn sync was incomplete; keeping page token {} so the next sync retries these changes", pageToken);
         }
+        log.info("Incremental hymn sync applied {} Drive changes ({} bytes saved by checksum matches so far)",
+                changeSet.changes().size(), googleDrive.getBytesSaved());
+        return true;
+    }
 
+    /**
+     * Downloads the cloud manifest with a single request; a missing or unreadable manifest is treated as empty.
+     * Returns false if the download failed.
+     */
+    private boolean refreshCloudTimestamps() {
+        try {
+            String jsonStringLive = googleDrive.downloadFile(hymnTimestampFileID);
+            hymnCacheTimestampsCloud = mapJsontoHymnCacheMap(jsonStringLive);
+            return true;
+        } catch (IOException e) {
+            log.error("Failed to download hymn timestamp file from Google Drive with ID {}: {}", hymnTimestampFileID, e.getMessage());
+            hymnCacheTimestampsCloud = new HashMap<>();
+            return false;
+        }
+    }
+
+    private void loadLocalTimestamps() {
         if (!cacheStore.fileExists(HYMN_CACHE_TIMESTAMPS_FILE)) {
             log.warn("Local hymn cache timestamps file not found: {}", HYMN_CACHE_TIMESTAMPS_FILE);
-            hymnCacheTimestampsLocal = new HashMap<>();
+            hymnCacheTimestampsLocal.set(Map.of());
         } else {
             try {
                 String jsonStringLocal = cacheStore.getFileContent(HYMN_CACHE_TIMESTAMPS_FILE);
-                hymnCacheTimestampsLocal = mapJsontoHymnCacheMap(jsonStringLocal);
+                hymnCacheTimestampsLocal.set(Map.copyOf(mapJsontoHymnCacheMap(jsonStringLocal)));
             } catch (IOException e) {
                 log.error("Failed to read local hymn cache timestamps file: {}", e.getMessage());
-                hymnCacheTimestampsLocal = new HashMap<>();
+                hymnCacheTimestampsLocal.set(Map.of());
             }
         }
     }
 
-    private void syncCacheTimestamps() {
-        for (String hymnName : hymnCacheTimestampsCloud.keySet()) {
-            HymnCollection liveCache = hymnCacheTimestampsCloud.get(hymnName);
-            HymnCollection localCache = hymnCacheTimestampsLocal.get(hymnName);
+    /**
+     * Atomically publishes a new snapshot with the given entries and saves it. An entry only replaces an existing
+     * one that is not newer, so a sync that started before a setHymn cannot undo it.
+     */
+    private void publishLocalTimestamps(Map<String, HymnMetadata> entries) {
+        hymnCacheTimestampsLocal.updateAndGet(current -> {
+            Map<String, HymnMetadata> next = new HashMap<>(current);
+            entries.forEach((hymnName, metadata) -> next.merge(hymnName, metadata, (existing, incoming) ->
+                    incoming.lastUpdated().getValue() >= existing.lastUpdated().getValue() ? incoming : existing));
+            return Map.copyOf(next);
+        });
+        saveLocalTimestamps();
+    }
 
+    private void saveLocalTimestamps() {
+        synchronized (manifestFileLock) {
+            try {
+                cacheStore.setFile(HYMN_CACHE_TIMESTAMPS_FILE, GSON.toJson(hymnCacheTimestampsLocal.get()));
+            } catch (IOException e) {
+                log.error("Failed to write local hymn cache timestamps file: {}", e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Downloads every hymn whose cloud timestamp is newer than the one in the working manifest, updating its entry
+     * once the file has landed. Hymns the bundle already holds at that version need no download.
+     * Adds the IDs of the updated files to downloadedFileIds and returns false if any download failed.
+     */
+    private boolean syncCacheTimestamps(Map<String, HymnMetadata> working, Set<String> downloadedFileIds) {
+        HymnBundle bundle = hymnBundle.get();
+        Map<String, HymnMetadata> outdated = new HashMap<>();
+        Map<String, HymnMetadata> downloaded = new HashMap<>();
+        hymnCacheTimestampsCloud.forEach((hymnName, liveCache) -> {
+            HymnMetadata localCache = working.get(hymnName);
             if (localCache == null || liveCache.lastUpdated().getValue() > localCache.lastUpdated().getValue()) {
                 log.info("Updating local cache timestamp for {}: {} -> {}", hymnName, localCache, liveCache);
+                if (bundle != null && bundle.isCurrent(hymnName, liveCache.lastUpdated())) {
+                    downloaded.put(hymnName, liveCache);
+                } else {
+                    outdated.put(hymnName, liveCache);
+                }
+            }
+        });
+
+        Map<String, HymnMetadata> fetched = downloadHymnFiles(outdated);
+        downloaded.putAll(fetched);
+        working.putAll(downloaded);
+        downloaded.values().forEach(liveCache -> downloadedFileIds.add(liveCache.fileId()));
+        return fetched.size() == outdated.size();
+    }
+
+    /**
+     * Downloads the given hymn files on virtual threads, at most HymnSyncConfig.downloadConcurrency() at a time, and
+     * returns the entries whose file was downloaded. Failed files are logged and left out.
+     * The checksums the downloads are compared against are fetched up front in batch requests.
+     */
+    private Map<String, HymnMetadata> downloadHymnFiles(Map<String, HymnMetadata> hymns) {
+        Map<String, HymnMetadata> downloaded = new ConcurrentHashMap<>();
+        if (hymns.isEmpty()) return downloaded;
+
+        Map<String, DriveFileMetadata> remoteMetadata = new HashMap<>();
+        try {
+            Set<String> fileIds = new HashSet<>();
+            hymns.values().forEach(metadata -> fileIds.add(metadata.fileId()));
+            googleDrive.getFilesMetadata(fileIds).forEach((fileId, result) -> {
+                if (result.isSuccess()) remoteMetadata.put(fileId, result.value());
+            });
+        } catch (IOException e) {
+            log.warn("Failed to fetch hymn file metadata in batches; fetching it per file: {}", e.getMessage());
+        }
 
-                Path localCachePath = cacheStore.getFileDirectory().resolve(liveCache.fileName());
+        Semaphore permits = new Semaphore(syncConfig.downloadConcurrency());
+        AtomicInteger completed = new AtomicInteger();
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            hymns.forEach((hymnName, metadata) -> executor.execute(() -> {
+                HymnSyncEvent.Type result = HymnSyncEvent.Type.HYMN_FAILED;
                 try {
-                    googleDrive.downloadFile(liveCache.fileId(), localCachePath);
-                } catch (Exception e) {
+                    permits.acquire();
+                    ReentrantLock fileLock = hymnFileLock(hymnName);
+                    fileLock.lock();
+                    try {
+                        if (isNewerLocally(hymnName, metadata)) {
+                            log.info("Skipping download of hymn '{}'; it was set locally while syncing", hymnName);
+                        } else {
+                            downloadHymnFileWithRetry(metadata, remoteMetadata.get(metadata.fileId()));
+                            invalidateParsedHymn(metadata.fileName());
+                        }
+                        // A skipped entry is still merged; the newer local entry wins
+                        downloaded.put(hymnName, metadata);
+                        result = HymnSyncEvent.Type.HYMN_DOWNLOADED;
+                    } finally {
+                        fileLock.unlock();
+                        permits.release();
+                    }
+                } catch (IOException e) {
                     log.error("Failed to download hymn file for {}: {}", hymnName, e.getMessage());
-                    continue;
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    log.warn("Interrupted while downloading hymn file for {}", hymnName);
+                }
+                fireSyncEvent(new HymnSyncEvent(result, completed.incrementAndGet(), hymns.size(), hymnName));
+            }));
+        }
+        log.info("Downloaded {} of {} hymn files", downloaded.size(), hymns.size());
+        return downloaded;
+    }
+
+    /**
+     * Retries dropped connections and timeouts, which the rate limiter does not, with exponential backoff. Any other
+     * failure is rethrown at once.
+     */
+    private void downloadHymnFileWithRetry(HymnMetadata metadata, DriveFileMetadata remote) throws IOException, InterruptedException {
+        for (int attempt = 1; ; attempt++) {
+            try {
+                downloadHymnFile(metadata, remote);
+                return;
+            } catch (IOException e) {
+                if (!isTransportFailure(e) || attempt >= syncConfig.downloadAttempts()) throw e;
+                long backoffMillis = syncConfig.retryBackoff().toMillis() << (attempt - 1);
+                log.warn("Download of hymn file {} failed (attempt {}/{}), retrying in {} ms: {}",
+                        metadata.fileName(), attempt, syncConfig.downloadAttempts(), backoffMillis, e.getMessage());
+                Thread.sleep(backoffMillis);
+            }
+        }
+    }
+
+    /**
+     * Drops every parsed version of a hymn file. Only needed for memory and for a file re-downloaded at the same
+     * version; a newer version is read under its own key anyway.
+     */
+    private void invalidateParsedHymn(String fileName) {
+        parsedHymns.asMap().keySet().removeIf(key -> key.fileName().equals(fileName));
+    }
+
+    private ReentrantLock hymnFileLock(String hymnName) {
+        return hymnFileLocks.computeIfAbsent(hymnName, name -> new ReentrantLock());
+    }
+
+    /**
+     * Returns true if the current snapshot holds a newer version of the hymn than the given entry, as after a setHymn
+     * made while a sync was running.
+     */
+    private boolean isNewerLocally(String hymnName, HymnMetadata metadata) {
+        HymnMetadata current = hymnCacheTimestampsLocal.get().get(hymnName);
+        return current != null && current.lastUpdated().getValue() > metadata.lastUpdated().getValue();
+    }
+
+    /**
+     * Returns true for failed connections and timeouts. HTTP error responses are not transport failures: a 404 or 403
+     * will not go away, and rate limits and server errors were already retried by the rate limiter.
+     */
+    private static boolean isTransportFailure(IOException e) {
+        for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+            if (cause instanceof HttpResponseException) return false;
+            if (cause instanceof SocketException
+                    || cause instanceof SocketTimeoutException
+                    || cause instanceof HttpTimeoutException
+                    || cause instanceof UnknownHostException) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Opens the newest local bundle version that is readable and deletes the others.
+     */
+    private void openLocalBundle() {
+        List<Path> bundleFiles = listBundleFiles();
+        bundleFiles.sort(Comparator.comparingLong(HymnStore::bundleVersion).reversed());
+        for (Path bundleFile : bundleFiles) {
+            if (swapBundle(bundleFile)) return;
+        }
+    }
+
+    /**
+     * Opens the given bundle file and makes it the current bundle. Older bundle files are deleted if nothing maps them
+     * anymore; on Windows the previous one stays mapped until it is garbage collected and is deleted on a later swap.
+     */
+    private boolean swapBundle(Path bundleFile) {
+        try {
+            // Parsed hymns stay cached: they are keyed by version, which reads the same from any bundle or file
+            hymnBundle.set(HymnBundle.open(bundleFile));
+        } catch (IOException e) {
+            log.warn("Failed to open hymn bundle {}; reading hymn files instead: {}", bundleFile, e.getMessage());
+            return false;
+        }
+        for (Path oldFile : listBundleFiles()) {
+            if (oldFile.equals(bundleFile)) continue;
+            try {
+                Files.deleteIfExists(oldFile);
+            } catch (IOException e) {
+                log.debug("Could not delete old hymn bundle {} yet: {}", oldFile, e.getMessage());
+            }
+        }
+        return true;
+    }
+
+    private List<Path> listBundleFiles() {
+        try (Stream<Path> files = Files.list(cacheDirectory)) {
+            return files.filter(file -> HYMN_BUNDLE_FILE.matcher(file.getFileName().toString()).matches())
+                    .collect(Collectors.toCollection(ArrayList::new));
+        } catch (IOException e) {
+            log.warn("Failed to list hymn bundles in {}: {}", cacheDirectory, e.getMessage());
+            return new ArrayList<>();
+        }
+    }
+
+    private static long bundleVersion(Path bundleFile) {
+        Matcher matcher = HYMN_BUNDLE_FILE.matcher(bundleFile.getFileName().toString());
+        return matcher.matches() && matcher.group(1) != null ? Long.parseLong(matcher.group(1)) : 0;
+    }
+
+    /**
+     * A file name for the next bundle version, newer than the current one and never an existing file.
+     */
+    private Path nextBundlePath() {
+        HymnBundle bundle = hymnBundle.get();
+        long version = Math.max(System.currentTimeMillis(), bundle == null ? 0 : bundleVersion(bundle.file()) + 1);
+        while (Files.exists(cacheDirectory.resolve("hymnBundle-" + version + ".msgpack"))) {
+            version++;
+        }
+        return cacheDirectory.resolve("hymnBundle-" + version + ".msgpack");
+    }
+
+    /**
+     * Downloads the Drive bundle if it changed and swaps it in, so syncCacheTimestamps can skip the hymns it covers.
+     * The current bundle is copied to the next version's file first, so an unchanged bundle is not downloaded again.
+     */
+    private void syncBundle() {
+        if (hymnBundleFileID == null) return;
+        synchronized (bundleLock) {
+            HymnBundle bundle = hymnBundle.get();
+            Path nextFile = nextBundlePath();
+            boolean swapped = false;
+            try {
+                if (bundle != null && Files.exists(bundle.file())) {
+                    Files.copy(bundle.file(), nextFile);
                 }
-                hymnCacheTimestampsLocal.put(hymnName, liveCache);
+                if (googleDrive.downloadFileIfChanged(hymnBundleFileID, nextFile) || bundle == null) {
+                    swapped = swapBundle(nextFile);
+                }
+            } catch (IOException e) {
+                log.warn("Failed to download hymn bundle; downloading hymn files instead: {}", e.getMessage());
             }
+            if (!swapped) {
+                try {
+                    Files.deleteIfExists(nextFile);
+                } catch (IOException e) {
+                    log.debug("Could not delete unused hymn bundle {}: {}", nextFile, e.getMessage());
+                }
+            }
+        }
+    }
+
+    /**
+     * Rebuilds the local bundle if it is behind the manifest and uploads the new bundle to Drive, so other installs can
+     * pull it instead of the hymn files. A failed upload is only logged; until a later rebuild is uploaded, other
+     * installs download the changed hymn files instead.
+     */
+    private void rebuildAndUploadBundle(Set<String> staleHymns) {
+        if (!rebuildLocalBundle(staleHymns) || hymnBundleFileID == null) return;
+        try {
+            googleDrive.updateFile(hymnBundleFileID, DriveMimeType.BINARY, hymnBundle.get().file().toFile());
+        } catch (IOException e) {
+            log.warn("Failed to upload the rebuilt hymn bundle: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Rewrites the local bundle if a manifest entry is newer than the bundle's copy or its file was re-downloaded
+     * (staleHymns). Current hymns are copied from the old bundle and the rest read from their cache files.
+     * Returns true if the bundle was rewritten.
+     */
+    private boolean rebuildLocalBundle(Set<String> staleHymns) {
+        synchronized (bundleLock) {
+            Map<String, HymnMetadata> manifest = hymnCacheTimestampsLocal.get();
+            HymnBundle bundle = hymnBundle.get();
+            boolean current = bundle != null && staleHymns.isEmpty() && manifest.entrySet().stream()
+                    .allMatch(entry -> bundle.isCurrent(entry.getKey(), entry.getValue().lastUpdated()));
+            if (current || manifest.isEmpty()) return false;
+
+            Map<String, Hymn> hymns = new HashMap<>();
+            Map<String, DateTime> timestamps = new HashMap<>();
+            for (Map.Entry<String, HymnMetadata> entry : manifest.entrySet()) {
+                String hymnName = entry.getKey();
+                HymnMetadata metadata = entry.getValue();
+                try {
+                    boolean fromBundle = bundle != null && !staleHymns.contains(hymnName) && bundle.isCurrent(hymnName, metadata.lastUpdated());
+                    hymns.put(hymnName, fromBundle ? bundle.getHymn(hymnName) : readHymnFile(metadata));
+                    timestamps.put(hymnName, metadata.lastUpdated());
+                } catch (IOException e) {
+                    log.warn("Leaving hymn '{}' out of the bundle: {}", hymnName, e.getMessage());
+                }
+            }
+
+            Path bundleFile = nextBundlePath();
+            try {
+                HymnBundle.write(bundleFile, new HymnCollection(Instant.now(), hymns), timestamps);
+            } catch (IOException e) {
+                log.error("Failed to write hymn bundle {}: {}", bundleFile, e.getMessage());
+                return false;
+            }
+            if (!swapBundle(bundleFile)) return false;
+            log.info("Rebuilt hymn bundle with {} hymns", hymns.size());
+            return true;
+        }
+    }
+
+    private HymnSearchIndex loadSearchIndex() {
+        if (!Files.exists(searchIndexPath)) return new HymnSearchIndex();
+        try {
+            return HymnSearchIndex.load(searchIndexPath);
+        } catch (IOException | RuntimeException e) {
+            log.warn("Failed to load hymn search index {}; rebuilding it: {}", searchIndexPath, e.getMessage());
+            return new HymnSearchIndex();
+        }
+    }
+
+    /**
+     * Brings the search index in line with the manifest: hymns no longer in it are dropped, and hymns that are new,
+     * newer than their indexed version or re-downloaded (staleHymns) are indexed again. Saves the index if it changed.
+     */
+    private void updateSearchIndex(Set<String> staleHymns) {
+        synchronized (searchIndexLock) {
+            Map<String, HymnMetadata> manifest = hymnCacheTimestampsLocal.get();
+            boolean changed = false;
+            for (String hymnName : searchIndex.getIndexedHymns()) {
+                if (!manifest.containsKey(hymnName)) {
+                    searchIndex.remove(hymnName);
+                    changed = true;
+                }
+            }
+            for (Map.Entry<String, HymnMetadata> entry : manifest.entrySet()) {
+                String hymnName = entry.getKey();
+                DateTime lastUpdated = entry.getValue().lastUpdated();
+                if (!staleHymns.contains(hymnName) && searchIndex.isCurrent(hymnName, lastUpdated)) continue;
+                try {
+                    searchIndex.index(hymnName, lastUpdated, getHymn(hymnName));
+                    changed = true;
+                } catch (IOException e) {
+                    log.warn("Leaving hymn '{}' out of the search index: {}", hymnName, e.getMessage());
+                }
+            }
+            if (!changed) return;
+
+            try {
+                searchIndex.save(searchIndexPath);
+            } catch (IOException e) {
+                log.error("Failed to write hymn search index {}: {}", searchIndexPath, e.getMessage());
+            }
+        }
+    }
+
+    private void fireSyncEvent(HymnSyncEvent event) {
+        for (Consumer<HymnSyncEvent> listener : syncListeners) {
+            try {
+                listener.accept(event);
+            } catch (RuntimeException e) {
+                log.warn("Hymn sync listener failed on {}: {}", event.type(), e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Downloads a hymn file into the cache, skipping it if the cached copy already matches Drive's checksum. remote is
+     * the file's prefetched Drive metadata, or null to fetch it.
+     */
+    private void downloadHymnFile(HymnMetadata metadata, DriveFileMetadata remote) throws IOException {
+        googleDrive.downloadFileIfChanged(metadata.fileId(), cacheStore.getFileDirectory().resolve(metadata.fileName()), remote);
+    }
+
+    private String readPageToken() {
+        if (!Files.exists(changesTokenPath) || hymnCacheTimestampsLocal.get().isEmpty()) return null;
+        try {
+            String token = Files.readString(changesTokenPath).trim();
+            return token.isEmpty() ? null : token;
+        } catch (IOException e) {
+            log.warn("Failed to read Drive changes page token: {}", e.getMessage());
+            return null;
+        }
+    }
+
+    private void deletePageToken() {
+        try {
+            Files.deleteIfExists(changesTokenPath);
+        } catch (IOException e) {
+            log.warn("Failed to delete Drive changes page token: {}", e.getMessage());
+        }
+    }
+
+    private void writePageToken(String pageToken) {
+        try {
+            Files.createDirectories(changesTokenPath.getParent());
+            Files.writeString(changesTokenPath, pageToken);
+        } catch (IOException e) {
+            log.warn("Failed to write Drive changes page token: {}", e.getMessage());
         }
     }
 }
@@ -0,0 +1,13 @@
+package org.fcnabc.autoppt.hymns.models;
+
+public record HymnCacheStats(
+    long hitCount,
+    long missCount,
+    long evictionCount,
+    long size
+) {
+    public double hitRate() {
+        long requests = hitCount + missCount;
+        return requests == 0 ? 1.0 : (double) hitCount / requests;
+    }
+}
@@ -0,0 +1,14 @@
+package org.fcnabc.autoppt.hymns.models;
+
+import com.google.api.client.util.DateTime;
+
+/**
+ * An entry of the hymn cache timestamps manifest: where a hymn's text is stored locally and on Google Drive,
+ * and when it was last updated.
+ */
+public record HymnMetadata(
+    String hymnName,
+    DateTime lastUpdated,
+    String fileName,
+    String fileId
+) {}
@@ -0,0 +1,11 @@
+package org.fcnabc.autoppt.hymns.models;
+
+/**
+ * A hymn matching a lyric search. matchedTerms counts the query terms the hymn matched; results are ranked by it
+ * first and by score second.
+ */
+public record HymnSearchResult(
+    String hymnName,
+    int matchedTerms,
+    double score
+) {}
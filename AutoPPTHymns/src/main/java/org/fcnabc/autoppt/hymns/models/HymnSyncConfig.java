@@ -0,0 +1,24 @@
+package org.fcnabc.autoppt.hymns.models;
+
+import java.time.Duration;
+
+/**
+ * Controls how HymnStore downloads hymn files during a sync. At most downloadConcurrency files are downloaded at once,
+ * which keeps a full sync within the Drive quota. A download that fails on a dropped connection or timeout is tried up
+ * to downloadAttempts times, waiting retryBackoff after the first failure and twice as long after each later one.
+ */
+public record HymnSyncConfig(
+    int downloadConcurrency,
+    int downloadAttempts,
+    Duration retryBackoff
+) {
+    public HymnSyncConfig {
+        if (downloadConcurrency < 1 || downloadAttempts < 1) {
+            throw new IllegalArgumentException("Download concurrency and attempts must be at least 1");
+        }
+    }
+
+    public static HymnSyncConfig defaults() {
+        return new HymnSyncConfig(8, 3, Duration.ofSeconds(1));
+    }
+}
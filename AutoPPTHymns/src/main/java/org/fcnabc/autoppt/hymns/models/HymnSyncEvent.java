@@ -0,0 +1,20 @@
+package org.fcnabc.autoppt.hymns.models;
+
+/**
+ * Progress of a HymnStore sync. completed, total and hymnName are only set for HYMN_DOWNLOADED and HYMN_FAILED,
+ * where they count the hymn files to download in the current phase of the sync.
+ */
+public record HymnSyncEvent(
+    Type type,
+    int completed,
+    int total,
+    String hymnName
+) {
+    public enum Type {
+        STARTED,
+        HYMN_DOWNLOADED,
+        HYMN_FAILED,
+        COMPLETED,
+        FAILED
+    }
+}
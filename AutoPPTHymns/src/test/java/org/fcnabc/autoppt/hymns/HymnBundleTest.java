@@ -0,0 +1,86 @@
+package org.fcnabc.autoppt.hymns;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import com.google.api.client.util.DateTime;
+
+import org.fcnabc.autoppt.hymns.models.Hymn;
+import org.fcnabc.autoppt.hymns.models.HymnCollection;
+
+class HymnBundleTest {
+    private static final Instant LAST_UPDATED = Instant.parse("2026-01-01T00:00:00Z");
+    private static final Hymn AMAZING = new Hymn("Amazing Grace", List.of("Amazing grace, how sweet the sound", "'Twas grace that taught"));
+    private static final Hymn CHINESE = new Hymn("奇異恩典", List.of("奇異恩典，何等甘甜", "我罪已得赦免"));
+
+    @TempDir
+    Path tempDir;
+
+    private Path writeBundle() throws IOException {
+        Path file = tempDir.resolve("hymnBundle-1.msgpack");
+        HymnBundle.write(file,
+                new HymnCollection(LAST_UPDATED, Map.of(AMAZING.hymnName(), AMAZING, CHINESE.hymnName(), CHINESE)),
+                Map.of(AMAZING.hymnName(), new DateTime(100), CHINESE.hymnName(), new DateTime(200)));
+        return file;
+    }
+
+    @Test
+    void testRoundTrip() throws IOException {
+        Path file = writeBundle();
+
+        HymnBundle bundle = HymnBundle.open(file);
+
+        assertEquals(file, bundle.file());
+        assertEquals(LAST_UPDATED, bundle.lastUpdated());
+        assertEquals(Set.of(AMAZING.hymnName(), CHINESE.hymnName()), bundle.getHymnNames());
+        assertEquals(AMAZING, bundle.getHymn(AMAZING.hymnName()));
+        assertEquals(CHINESE, bundle.getHymn(CHINESE.hymnName()), "Chinese text must survive the round trip");
+        assertNull(bundle.getHymn("Missing"));
+        assertEquals(Map.of(AMAZING.hymnName(), AMAZING, CHINESE.hymnName(), CHINESE), bundle.toCollection().hymns());
+        assertFalse(Files.exists(tempDir.resolve("hymnBundle-1.msgpack.tmp")));
+    }
+
+    @Test
+    void testIsCurrentDetectsStaleHymns() throws IOException {
+        HymnBundle bundle = HymnBundle.open(writeBundle());
+
+        assertTrue(bundle.isCurrent(AMAZING.hymnName(), new DateTime(99)));
+        assertTrue(bundle.isCurrent(AMAZING.hymnName(), new DateTime(100)));
+        assertFalse(bundle.isCurrent(AMAZING.hymnName(), new DateTime(101)), "A newer manifest entry makes the copy stale");
+        assertTrue(bundle.isCurrent(CHINESE.hymnName(), new DateTime(200)));
+        assertFalse(bundle.isCurrent("Missing", new DateTime(0)));
+    }
+
+    @Test
+    void testHymnWithoutTimestampIsNeverCurrent() throws IOException {
+        Path file = tempDir.resolve("hymnBundle-1.msgpack");
+        HymnBundle.write(file, new HymnCollection(LAST_UPDATED, Map.of(AMAZING.hymnName(), AMAZING)), Map.of());
+
+        HymnBundle bundle = HymnBundle.open(file);
+
+        assertFalse(bundle.isCurrent(AMAZING.hymnName(), new DateTime(1)));
+        assertEquals(AMAZING, bundle.getHymn(AMAZING.hymnName()));
+    }
+
+    @Test
+    void testOpenRejectsOtherFiles() throws IOException {
+        Path notABundle = Files.writeString(tempDir.resolve("hymnBundle-2.msgpack"), "Amazing grace, how sweet the sound");
+        Path truncated = tempDir.resolve("hymnBundle-3.msgpack");
+        byte[] bundleBytes = Files.readAllBytes(writeBundle());
+        Files.write(truncated, Arrays.copyOf(bundleBytes, bundleBytes.length - 10));
+
+        assertThrows(IOException.class, () -> HymnBundle.open(notABundle));
+        assertThrows(IOException.class, () -> HymnBundle.open(truncated));
+    }
+}
@@ -0,0 +1,101 @@
+package org.fcnabc.autoppt.hymns;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Set;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import com.google.api.client.util.DateTime;
+
+import org.fcnabc.autoppt.hymns.models.Hymn;
+import org.fcnabc.autoppt.hymns.models.HymnSearchResult;
+
+class HymnSearchIndexTest {
+    private HymnSearchIndex searchIndex;
+
+    private void index(String hymnName, long lastUpdated, String... verses) {
+        searchIndex.index(hymnName, new DateTime(lastUpdated), new Hymn(hymnName, List.of(verses)));
+    }
+
+    private List<String> search(String query) {
+        return searchIndex.search(query, 10).stream().map(HymnSearchResult::hymnName).toList();
+    }
+
+    @BeforeEach
+    void setUp() {
+        searchIndex = new HymnSearchIndex();
+        index("Amazing Grace", 1, "Amazing grace, how sweet the sound", "That saved a wretch like me");
+        index("Holy Holy Holy", 1, "Holy, holy, holy! Lord God Almighty", "Early in the morning our song shall rise to Thee");
+        index("How Great Thou Art", 1, "O Lord my God, when I in awesome wonder", "Then sings my soul, my Saviour God, by grace");
+        index("奇異恩典", 1, "奇異恩典，何等甘甜", "我罪已得赦免");
+        index("恩典之路", 1, "走在恩典之路上");
+    }
+
+    @Test
+    void testCjkQueriesMatchCharacterPairs() {
+        assertEquals(List.of("奇異恩典"), search("異恩"));
+        assertEquals(Set.of("奇異恩典", "恩典之路"), Set.copyOf(search("恩典")));
+        assertEquals(List.of(), search("恩路"), "Both characters occur, but never next to each other");
+        assertEquals(Set.of("奇異恩典", "恩典之路"), Set.copyOf(search("恩")));
+    }
+
+    @Test
+    void testOnlyLastWordMatchesAsPrefix() {
+        assertEquals(List.of("Amazing Grace"), search("amaz"));
+
+        List<HymnSearchResult> results = searchIndex.search("amaz grace", 10);
+        assertEquals(1, results.get(0).matchedTerms(), "A prefix that is not the last word must match exactly");
+        assertEquals(2, searchIndex.search("grace amaz", 10).get(0).matchedTerms());
+    }
+
+    @Test
+    void testMisspelledWordsMatchFuzzily() {
+        assertEquals(List.of("Amazing Grace"), search("amazng"));
+        assertEquals(List.of("Holy Holy Holy"), search("almigthy"), "Long words allow two edits");
+        assertEquals(List.of(), search("gad"), "Short words must match exactly");
+    }
+
+    @Test
+    void testRankingPrefersMatchedTermsThenScore() {
+        assertEquals(List.of("Holy Holy Holy", "How Great Thou Art"), search("holy lord"));
+        assertEquals(List.of("Amazing Grace", "How Great Thou Art"), search("grace"), "Name matches outweigh verse matches");
+        assertEquals(List.of("Holy Holy Holy"), searchIndex.search("lord", 1).stream().map(HymnSearchResult::hymnName).toList());
+    }
+
+    @Test
+    void testReindexReplacesHymnAndRemoveDropsIt() {
+        index("Amazing Grace", 2, "Amazing grace, how sweet the sound", "I once was lost, but now am found");
+
+        assertEquals(List.of(), search("wretch"));
+        assertEquals(List.of("Amazing Grace"), search("found"));
+        assertTrue(searchIndex.isCurrent("Amazing Grace", new DateTime(2)));
+        assertFalse(searchIndex.isCurrent("Amazing Grace", new DateTime(1)));
+
+        searchIndex.remove("Amazing Grace");
+
+        assertEquals(List.of(), search("amazing"));
+        assertEquals(List.of(), search("amazng"), "Removed words must not match fuzzily either");
+        assertEquals(List.of("How Great Thou Art"), search("grace"));
+        assertFalse(searchIndex.getIndexedHymns().contains("Amazing Grace"));
+    }
+
+    @Test
+    void testSaveAndLoadRoundTrip(@TempDir Path tempDir) throws IOException {
+        Path file = tempDir.resolve("hymnSearchIndex.msgpack");
+        searchIndex.save(file);
+
+        HymnSearchIndex loaded = HymnSearchIndex.load(file);
+
+        assertEquals(searchIndex.getIndexedHymns(), loaded.getIndexedHymns());
+        assertTrue(loaded.isCurrent("奇異恩典", new DateTime(1)));
+        for (String query : List.of("grace", "holy lord", "異恩", "amaz", "almigthy")) {
+            assertEquals(searchIndex.search(query, 10), loaded.search(query, 10), query);
+        }
+    }
+}
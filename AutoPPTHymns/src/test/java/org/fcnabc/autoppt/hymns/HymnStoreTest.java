@@ -0,0 +1,343 @@
+package org.fcnabc.autoppt.hymns;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+import java.io.IOException;
+import java.net.SocketException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import com.google.api.client.http.HttpHeaders;
+import com.google.api.client.http.HttpResponseException;
+import com.google.api.client.util.DateTime;
+import com.google.gson.Gson;
+import com.google.inject.AbstractModule;
+import com.google.inject.Guice;
+import com.google.inject.Injector;
+import com.google.inject.Key;
+import com.google.inject.name.Names;
+
+import org.fcnabc.autoppt.google.GoogleDrive;
+import org.fcnabc.autoppt.google.models.DriveChangeSet;
+import org.fcnabc.autoppt.google.models.DriveFileChange;
+import org.fcnabc.autoppt.io.FileStore;
+import org.fcnabc.autoppt.io.model.AppConfig;
+import org.fcnabc.autoppt.hymns.models.Hymn;
+import org.fcnabc.autoppt.hymns.models.HymnCacheStats;
+import org.fcnabc.autoppt.hymns.models.HymnCollection;
+import org.fcnabc.autoppt.hymns.models.HymnMetadata;
+import org.fcnabc.autoppt.hymns.models.HymnSyncConfig;
+import org.fcnabc.autoppt.hymns.models.HymnSyncEvent;
+
+class HymnStoreTest {
+    private static final String MANIFEST_ID = "manifest_id";
+    private static final String BUNDLE_ID = "bundle_id";
+    private static final Gson GSON = new Gson();
+
+    @TempDir
+    Path appDirectory;
+
+    private GoogleDrive googleDrive;
+    private FileStore cacheStore;
+    private final Map<String, HymnMetadata> cloudManifest = new HashMap<>();
+    // Drive file ID -> content
+    private final Map<String, String> cloudFiles = new HashMap<>();
+    private final Set<String> failingFileIds = new HashSet<>();
+
+    private static HymnMetadata hymn(String name, long lastUpdated) {
+        return new HymnMetadata(name, new DateTime(lastUpdated), name.toLowerCase() + ".txt", name.toLowerCase() + "_id");
+    }
+
+    private void putCloudHymn(HymnMetadata metadata, String content) {
+        cloudManifest.put(metadata.hymnName(), metadata);
+        cloudFiles.put(metadata.fileId(), content);
+    }
+
+    @BeforeEach
+    void setUp() throws IOException {
+        googleDrive = mock(GoogleDrive.class);
+        cacheStore = new FileStore(appDirectory.resolve("hymns"));
+        when(googleDrive.getStartPageToken()).thenReturn("token_1");
+        when(googleDrive.downloadFile(MANIFEST_ID)).thenAnswer(invocation -> GSON.toJson(cloudManifest));
+        when(googleDrive.downloadFileIfChanged(anyString(), any(Path.class), any())).thenAnswer(invocation -> {
+            String fileId = invocation.getArgument(0);
+            if (failingFileIds.contains(fileId)) throw new IOException("Connection reset");
+            Files.writeString(invocation.getArgument(1), cloudFiles.get(fileId));
+            return true;
+        });
+    }
+
+    private HymnStore createSyncedStore() throws Exception {
+        HymnStore store = new HymnStore(cacheStore, googleDrive, new AppConfig("key", "esv", MANIFEST_ID),
+                new HymnSyncConfig(2, 1, Duration.ZERO), appDirectory);
+        store.getSyncFuture().get(10, TimeUnit.SECONDS);
+        return store;
+    }
+
+    private String pageToken() throws IOException {
+        Path tokenFile = appDirectory.resolve("hymnChangesPageToken.txt");
+        return Files.exists(tokenFile) ? Files.readString(tokenFile) : null;
+    }
+
+    @Test
+    void testFullSyncSavesPageTokenOnlyWhenComplete() throws Exception {
+        putCloudHymn(hymn("Amazing", 1), "Amazing grace");
+        putCloudHymn(hymn("Holy", 1), "Holy holy holy");
+        failingFileIds.add("holy_id");
+
+        HymnStore store = createSyncedStore();
+
+        assertEquals(Set.of("Amazing"), store.getAvailableHymns());
+        assertNull(pageToken(), "A failed download must leave the next sync a full one");
+
+        failingFileIds.clear();
+        store.requestSync().get(10, TimeUnit.SECONDS);
+
+        assertEquals(Set.of("Amazing", "Holy"), store.getAvailableHymns());
+        assertEquals("token_1", pageToken());
+    }
+
+    @Test
+    void testFullSyncWithUnreadableManifestKeepsNoToken() throws Exception {
+        when(googleDrive.downloadFile(MANIFEST_ID)).thenThrow(new IOException("Backend error"));
+
+        createSyncedStore();
+
+        assertNull(pageToken());
+    }
+
+    @Test
+    void testIncrementalSyncKeepsOldTokenUntilDownloadsSucceed() throws Exception {
+        putCloudHymn(hymn("Amazing", 1), "Amazing grace");
+        HymnStore store = createSyncedStore();
+        assertEquals("token_1", pageToken());
+
+        putCloudHymn(hymn("Amazing", 2), "Amazing grace, how sweet");
+        when(googleDrive.listChanges("token_1")).thenReturn(
+                new DriveChangeSet(List.of(new DriveFileChange(MANIFEST_ID, false, new DateTime(2))), "token_2"));
+        failingFileIds.add("amazing_id");
+        store.requestSync().get(10, TimeUnit.SECONDS);
+
+        assertEquals("token_1", pageToken(), "The changes must be replayed by the next sync");
+        assertEquals("Amazing grace", store.getHymn("Amazing").verses().get(0));
+
+        failingFileIds.clear();
+        store.requestSync().get(10, TimeUnit.SECONDS);
+
+        assertEquals("token_2", pageToken());
+        assertEquals("Amazing grace, how sweet", store.getHymn("Amazing").verses().get(0));
+        verify(googleDrive, times(2)).listChanges(eq("token_1"));
+    }
+
+    @Test
+    void testOnlyTransportFailuresAreRetried() throws Exception {
+        putCloudHymn(hymn("Amazing", 1), "Amazing grace");
+        putCloudHymn(hymn("Holy", 1), "Holy holy holy");
+        when(googleDrive.downloadFileIfChanged(eq("amazing_id"), any(Path.class), any()))
+                .thenThrow(new SocketException("Connection reset"))
+                .thenAnswer(invocation -> {
+                    Files.writeString(invocation.getArgument(1), "Amazing grace");
+                    return true;
+                });
+        when(googleDrive.downloadFileIfChanged(eq("holy_id"), any(Path.class), any()))
+                .thenThrow(new HttpResponseException.Builder(404, "Not Found", new HttpHeaders()).build());
+
+        HymnStore store = new HymnStore(cacheStore, googleDrive, new AppConfig("key", "esv", MANIFEST_ID),
+                new HymnSyncConfig(2, 3, Duration.ZERO), appDirectory);
+        store.getSyncFuture().get(10, TimeUnit.SECONDS);
+
+        assertEquals(Set.of("Amazing"), store.getAvailableHymns());
+        verify(googleDrive, times(2)).downloadFileIfChanged(eq("amazing_id"), any(Path.class), any());
+        verify(googleDrive, times(1)).downloadFileIfChanged(eq("holy_id"), any(Path.class), any());
+    }
+
+    @Test
+    void testSyncReportsProgressEvents() throws Exception {
+        HymnStore store = createSyncedStore();
+        putCloudHymn(hymn("Amazing", 1), "Amazing grace");
+        putCloudHymn(hymn("Holy", 1), "Holy holy holy");
+        List<HymnSyncEvent> events = new CopyOnWriteArrayList<>();
+        store.addSyncListener(events::add);
+
+        store.requestSync().get(10, TimeUnit.SECONDS);
+
+        assertEquals(4, events.size(), events.toString());
+        assertEquals(HymnSyncEvent.Type.STARTED, events.get(0).type());
+        assertEquals(HymnSyncEvent.Type.COMPLETED, events.get(3).type());
+        for (HymnSyncEvent event : events.subList(1, 3)) {
+            assertEquals(HymnSyncEvent.Type.HYMN_DOWNLOADED, event.type());
+            assertEquals(2, event.total());
+        }
+        assertEquals(Set.of(1, 2), Set.of(events.get(1).completed(), events.get(2).completed()));
+    }
+
+    @Test
+    void testFailedSyncCompletesFutureExceptionally() throws Exception {
+        HymnStore store = createSyncedStore();
+        List<HymnSyncEvent> events = new CopyOnWriteArrayList<>();
+        store.addSyncListener(events::add);
+        when(googleDrive.getStartPageToken()).thenThrow(new IllegalStateException("No credentials"));
+
+        ExecutionException e = assertThrows(ExecutionException.class, () -> store.requestSync().get(10, TimeUnit.SECONDS));
+
+        assertInstanceOf(IllegalStateException.class, e.getCause());
+        assertEquals(HymnSyncEvent.Type.FAILED, events.get(events.size() - 1).type());
+        assertTrue(store.getSyncFuture().isCompletedExceptionally());
+    }
+
+    @Test
+    void testModuleBindsSyncConfigAndCacheDirectory() {
+        HymnSyncConfig config = new HymnSyncConfig(3, 2, Duration.ofMillis(10));
+        Injector injector = Guice.createInjector(new HymnModule(config), new AbstractModule() {
+            @Override
+            protected void configure() {
+                bind(Path.class).annotatedWith(Names.named("AppDirectory")).toInstance(appDirectory);
+                bind(GoogleDrive.class).toInstance(googleDrive);
+                bind(AppConfig.class).toInstance(new AppConfig("key", "esv", MANIFEST_ID));
+            }
+        });
+
+        assertSame(config, injector.getInstance(HymnSyncConfig.class));
+        assertEquals(appDirectory.resolve("hymns"), injector.getInstance(Key.get(Path.class, Names.named("FileDirectory"))));
+        assertThrows(IllegalArgumentException.class, () -> new HymnSyncConfig(0, 1, Duration.ZERO));
+    }
+
+    @Test
+    void testSnapshotsAreImmutableAndNotReplacedByOlderEntries() throws Exception {
+        putCloudHymn(hymn("Amazing", 1), "Amazing grace");
+        HymnStore store = createSyncedStore();
+        Set<String> snapshot = store.getAvailableHymns();
+
+        store.setHymn("Amazing", new DateTime(5), "Amazing grace, edited here");
+        putCloudHymn(hymn("Holy", 1), "Holy holy holy");
+        putCloudHymn(hymn("Amazing", 3), "Amazing grace, edited elsewhere");
+        when(googleDrive.listChanges("token_1")).thenReturn(
+                new DriveChangeSet(List.of(new DriveFileChange(MANIFEST_ID, false, new DateTime(3))), "token_2"));
+        store.requestSync().get(10, TimeUnit.SECONDS);
+
+        assertEquals(Set.of("Amazing"), snapshot, "An earlier snapshot never changes");
+        assertThrows(UnsupportedOperationException.class, () -> snapshot.add("Holy"));
+        assertEquals(Set.of("Amazing", "Holy"), store.getAvailableHymns());
+        assertEquals("Amazing grace, edited here", store.getHymn("Amazing").verses().get(0));
+    }
+
+    @Test
+    void testSyncDoesNotOverwriteHymnSetWhileSyncing() throws Exception {
+        putCloudHymn(hymn("Amazing", 1), "Amazing grace");
+        HymnStore store = createSyncedStore();
+        AtomicReference<HymnStore> storeRef = new AtomicReference<>(store);
+
+        putCloudHymn(hymn("Amazing", 2), "Amazing grace, edited elsewhere");
+        when(googleDrive.listChanges("token_1")).thenReturn(
+                new DriveChangeSet(List.of(new DriveFileChange(MANIFEST_ID, false, new DateTime(2))), "token_2"));
+        // The sync has marked the hymn outdated by the time it fetches checksums; a local edit lands right then
+        when(googleDrive.getFilesMetadata(any())).thenAnswer(invocation -> {
+            storeRef.get().setHymn("Amazing", new DateTime(3), "Amazing grace, edited here");
+            return Map.of();
+        });
+        store.requestSync().get(10, TimeUnit.SECONDS);
+
+        assertEquals("Amazing grace, edited here", store.getHymn("Amazing").verses().get(0));
+        assertEquals("Amazing grace, edited here", Files.readString(cacheStore.getFileDirectory().resolve("amazing.txt")));
+        assertEquals("token_2", pageToken());
+    }
+
+    @Test
+    void testParsedHymnsAreCachedAndEvictedPastCapacity() throws Exception {
+        for (int i = 0; i < 201; i++) {
+            putCloudHymn(hymn("Hymn " + i, 1), "Verse " + i);
+        }
+        HymnStore store = createSyncedStore();
+        HymnCacheStats before = store.getHymnCacheStats();
+
+        store.getHymn("Hymn 7");
+        store.getHymn("Hymn 7");
+        HymnCacheStats after = store.getHymnCacheStats();
+
+        assertTrue(after.hitCount() - before.hitCount() >= 1);
+        assertTrue(after.size() <= 200, "The cache is bounded");
+        assertTrue(after.evictionCount() >= 1, "Indexing all 201 hymns must evict one");
+    }
+
+    @Test
+    void testSetHymnInvalidatesParsedHymn() throws Exception {
+        putCloudHymn(hymn("Amazing", 1), "Amazing grace");
+        HymnStore store = createSyncedStore();
+        assertEquals("Amazing grace", store.getHymn("Amazing").verses().get(0));
+        long misses = store.getHymnCacheStats().missCount();
+
+        store.setHymn("Amazing", new DateTime(2), "Amazing grace\n\nHow sweet the sound");
+
+        assertEquals(List.of("Amazing grace", "How sweet the sound"), store.getHymn("Amazing").verses());
+        assertTrue(store.getHymnCacheStats().missCount() > misses);
+    }
+
+    @Test
+    void testRebuiltBundleIsWrittenToNewFile() throws Exception {
+        // A bundle under the unversioned name of older releases
+        Path cacheDirectory = Files.createDirectories(appDirectory.resolve("hymns"));
+        HymnBundle.write(cacheDirectory.resolve("hymnBundle.msgpack"),
+                new HymnCollection(Instant.EPOCH, Map.of("Amazing", new Hymn("Amazing", List.of("Amazing grace")))),
+                Map.of("Amazing", new DateTime(1)));
+        putCloudHymn(hymn("Amazing", 1), "Amazing grace");
+        HymnStore store = createSyncedStore();
+        assertEquals("Amazing grace", store.getHymn("Amazing").verses().get(0));
+
+        store.setHymn("Amazing", new DateTime(2), "Amazing grace, how sweet");
+        when(googleDrive.listChanges("token_1")).thenReturn(new DriveChangeSet(List.of(), "token_2"));
+        store.requestSync().get(10, TimeUnit.SECONDS);
+
+        List<String> bundleFiles;
+        try (Stream<Path> files = Files.list(cacheDirectory)) {
+            bundleFiles = files.map(file -> file.getFileName().toString()).filter(name -> name.startsWith("hymnBundle")).toList();
+        }
+        assertEquals(1, bundleFiles.size(), bundleFiles.toString());
+        assertTrue(bundleFiles.get(0).matches("hymnBundle-\\d+\\.msgpack"), bundleFiles.get(0));
+        assertTrue(HymnBundle.open(cacheDirectory.resolve(bundleFiles.get(0))).isCurrent("Amazing", new DateTime(2)));
+    }
+
+    @Test
+    void testSetHymnDefersBundleRebuildToNextSync() throws Exception {
+        putCloudHymn(hymn("Amazing", 1), "Amazing grace");
+        putCloudHymn(hymn("Holy", 1), "Holy holy holy");
+        HymnStore store = new HymnStore(cacheStore, googleDrive, new AppConfig("key", "esv", MANIFEST_ID, BUNDLE_ID),
+                new HymnSyncConfig(2, 1, Duration.ZERO), appDirectory);
+        store.getSyncFuture().get(10, TimeUnit.SECONDS);
+        verify(googleDrive).updateFile(eq(BUNDLE_ID), any(), any(java.io.File.class));
+        assertEquals("Holy holy holy", store.getHymn("Holy").verses().get(0));
+
+        store.setHymn("Amazing", new DateTime(2), "Amazing grace, how sweet");
+        store.setHymn("Amazing", new DateTime(3), "Amazing grace, how sweet the sound");
+
+        verify(googleDrive, times(1)).updateFile(eq(BUNDLE_ID), any(), any(java.io.File.class));
+        assertEquals("Amazing grace, how sweet the sound", store.getHymn("Amazing").verses().get(0));
+
+        when(googleDrive.listChanges("token_1")).thenReturn(new DriveChangeSet(List.of(), "token_2"));
+        store.requestSync().get(10, TimeUnit.SECONDS);
+
+        verify(googleDrive, times(2)).updateFile(eq(BUNDLE_ID), any(), any(java.io.File.class));
+        long hits = store.getHymnCacheStats().hitCount();
+        assertEquals("Holy holy holy", store.getHymn("Holy").verses().get(0));
+        assertEquals(hits + 1, store.getHymnCacheStats().hitCount(), "Swapping in the rebuilt bundle keeps unchanged hymns cached");
+    }
+}
@@ -2,12 +2,20 @@ package org.fcnabc.autoppt.io.model;
 
 import com.google.gson.Gson;
 
+/**
+ * HymnBundleGoogleFileId is optional; when set, hymn sync pulls the whole library as one bundle file.
+ */
 public record AppConfig(
     String GoogleCredentialKey,
     String ESVApiKey,
-    String HymnStoreGoogleFileId
+    String HymnStoreGoogleFileId,
+    String HymnBundleGoogleFileId
 ) {
     private static final Gson GSON = new Gson();
+
+    public AppConfig(String GoogleCredentialKey, String ESVApiKey, String HymnStoreGoogleFileId) {
+        this(GoogleCredentialKey, ESVApiKey, HymnStoreGoogleFileId, null);
+    }
     
     @SuppressWarnings("null")
     public static AppConfig fromJson(String json) throws RuntimeException {